@@ -0,0 +1,24 @@
+package potato;
+
+public abstract class Benchmark {
+    private final String name;
+
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Called once per resolution and seed, before warm-up
+    public void setUp(BenchmarkFixture fixture) {
+    }
+
+    // Called after measuring, to undo fixture changes made in setUp
+    public void tearDown(BenchmarkFixture fixture) {
+    }
+
+    // One operation. The result is folded into a sink so the JIT can't drop the work
+    public abstract int run();
+}
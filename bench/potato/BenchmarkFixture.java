@@ -0,0 +1,93 @@
+package potato;
+
+import java.util.Random;
+
+public class BenchmarkFixture {
+    private static boolean assetsLoaded;
+
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final Renderer renderer;
+    private final Map map;
+    private final Random random;
+
+    // A headless renderer looking into a generated map with sprites around, with the camera and
+    // wall buffers already set up for one frame
+    public BenchmarkFixture(int width, int height, long seed, int mapSize, int sprites, int threads) {
+        loadAssets();
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.map = new Map(mapSize, mapSize, seed);
+
+        renderer = new Renderer(width, height, null, Game.player, threads);
+        Game.renderer = renderer;
+        renderer.setMap(map);
+
+        int[] start = map.getRandomFreeCoordinate();
+        if (start == null) {
+            throw new IllegalStateException("Map seed " + seed + " has no free cell to place the camera in");
+        }
+        Game.player.setX(start[0] + 0.5);
+        Game.player.setY(start[1] + 0.5);
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double planeLength = Math.tan(Renderer.HALF_FOV);
+        Game.player.setAngle(angle);
+        Game.player.setPlaneX(-planeLength * Math.sin(angle));
+        Game.player.setPlaneY(planeLength * Math.cos(angle));
+
+        for (int i = 0; i < sprites; i++) {
+            int[] spawn = map.getRandomFreeCoordinate();
+            if (spawn == null) {
+                throw new IllegalStateException("Map seed " + seed + " has no free cell to place sprites in");
+            }
+            renderer.entities.add(new ShroomEnemy(spawn[0] + random.nextDouble(), spawn[1] + random.nextDouble()));
+        }
+
+        renderer.beginFrame();
+        renderer.castRays();
+    }
+
+    private static synchronized void loadAssets() {
+        if (!assetsLoaded) {
+            Game.player = new Player(1.5, 1.5, 0);
+            Game.loadTextures();
+            Game.setPaused(false);
+            assetsLoaded = true;
+        }
+    }
+
+    public void dispose() {
+        renderer.cleanup();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    public Map getMap() {
+        return map;
+    }
+
+    public Player getPlayer() {
+        return Game.player;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+}
@@ -0,0 +1,173 @@
+package potato;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BenchmarkRunner {
+    private static final int BATCH_MILLIS = 10;
+    private static final String FORK_ARGUMENT = "--fork";
+    private static final String SAMPLES_PREFIX = "samples ";
+
+    private final String[] resolutions = System.getProperty("bench.resolutions", "320x240,640x480,1280x960").split(",");
+    private final String[] seeds = System.getProperty("bench.seeds", "1,123,2024").split(",");
+    private final int mapSize = Integer.getInteger("bench.mapSize", 32);
+    private final int sprites = Integer.getInteger("bench.sprites", 64);
+    private final int threads = Integer.getInteger("bench.threads", 1);
+    private final long warmupMillis = Long.getLong("bench.warmup", 500);
+    private final int iterations = Integer.getInteger("bench.iterations", 5);
+    // JVMs per benchmark, resolution and seed; 0 measures everything in this JVM, each with its own fixture
+    private final int forks = Integer.getInteger("bench.forks", 1);
+    private final String filter;
+
+    public static volatile int sink;
+
+    public BenchmarkRunner(String filter) {
+        this.filter = filter;
+    }
+
+    // Usage: java -cp <classes> potato.BenchmarkRunner [name filter], or bench/run.sh [name filter]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length == 4 && args[0].equals(FORK_ARGUMENT)) {
+            new BenchmarkRunner(args[1]).runFork(args[2], args[3]);
+        } else {
+            new BenchmarkRunner(args.length > 0 ? args[0] : "").run(RendererBenchmarks.all());
+        }
+        System.exit(0);
+    }
+
+    public void run(List<Benchmark> benchmarks) throws IOException, InterruptedException {
+        List<Benchmark> selected = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks) {
+            if (benchmark.getName().contains(filter)) {
+                selected.add(benchmark);
+            }
+        }
+        System.out.printf("%-32s %10s %6s %14s %12s  %s%n", "Benchmark", "Resolution", "Seed", "Score", "Error", "Units");
+        for (String resolution : resolutions) {
+            for (String seed : seeds) {
+                for (Benchmark benchmark : selected) {
+                    List<Double> samples = new ArrayList<>();
+                    if (forks > 0) {
+                        for (int fork = 0; fork < forks; fork++) {
+                            samples.addAll(fork(benchmark, resolution.trim(), seed.trim()));
+                        }
+                    } else {
+                        samples.addAll(measure(benchmark, resolution.trim(), seed.trim()));
+                    }
+                    double[] result = summarize(samples);
+                    System.out.printf("%-32s %10s %6s %14.3f %12.3f  us/op%n",
+                            benchmark.getName(), resolution.trim(), seed.trim(), result[0], result[1]);
+                }
+            }
+        }
+    }
+
+    // Runs one benchmark in a child JVM with the same classpath, JVM flags and properties, so JIT profiles
+    // and static state left behind by other benchmarks can't influence it
+    private List<Double> fork(Benchmark benchmark, String resolution, String seed) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRunner.class.getName());
+        command.add(FORK_ARGUMENT);
+        command.add(benchmark.getName());
+        command.add(resolution);
+        command.add(seed);
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        List<Double> samples = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SAMPLES_PREFIX)) {
+                    for (String sample : line.substring(SAMPLES_PREFIX.length()).trim().split(" ")) {
+                        samples.add(Double.parseDouble(sample));
+                    }
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || samples.isEmpty()) {
+            throw new IllegalStateException("Fork for " + benchmark.getName() + " at " + resolution + ", seed " + seed
+                    + " failed with exit code " + exitCode);
+        }
+        return samples;
+    }
+
+    // Child side of fork: measures the benchmark with exactly this name and prints its samples for the parent
+    private void runFork(String resolution, String seed) {
+        for (Benchmark benchmark : RendererBenchmarks.all()) {
+            if (benchmark.getName().equals(filter)) {
+                StringBuilder line = new StringBuilder(SAMPLES_PREFIX);
+                for (double sample : measure(benchmark, resolution, seed)) {
+                    line.append(sample).append(' ');
+                }
+                System.out.println(line.toString().trim());
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unknown benchmark " + filter);
+    }
+
+    // Every measurement gets a fresh fixture, so nothing a benchmark does to the renderer leaks into the next
+    private List<Double> measure(Benchmark benchmark, String resolution, String seed) {
+        String[] size = resolution.split("x");
+        BenchmarkFixture fixture = new BenchmarkFixture(Integer.parseInt(size[0]), Integer.parseInt(size[1]),
+                Long.parseLong(seed), mapSize, sprites, threads);
+        try {
+            benchmark.setUp(fixture);
+            List<Double> samples = measure(benchmark);
+            benchmark.tearDown(fixture);
+            return samples;
+        } finally {
+            fixture.dispose();
+        }
+    }
+
+    // Warms up for a fixed time, then times batches of roughly BATCH_MILLIS each.
+    // Returns the time per operation of every batch, in microseconds
+    private List<Double> measure(Benchmark benchmark) {
+        int result = 0;
+        long operations = 0;
+        long start = System.nanoTime();
+        long warmupNanos = warmupMillis * 1_000_000;
+        while (System.nanoTime() - start < warmupNanos) {
+            result += benchmark.run();
+            operations++;
+        }
+        long batch = Math.max(1, operations * BATCH_MILLIS / Math.max(1, warmupMillis));
+
+        List<Double> samples = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            long batchStart = System.nanoTime();
+            for (long op = 0; op < batch; op++) {
+                result += benchmark.run();
+            }
+            samples.add((System.nanoTime() - batchStart) / 1e3 / batch);
+        }
+        sink = result;
+        return samples;
+    }
+
+    // Mean and standard deviation of the samples of all forks
+    private static double[] summarize(List<Double> samples) {
+        double mean = 0;
+        for (double sample : samples) {
+            mean += sample;
+        }
+        mean /= samples.size();
+        double variance = 0;
+        for (double sample : samples) {
+            variance += (sample - mean) * (sample - mean);
+        }
+        return new double[]{mean, Math.sqrt(variance / samples.size())};
+    }
+}
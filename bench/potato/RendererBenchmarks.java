@@ -0,0 +1,305 @@
+package potato;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RendererBenchmarks {
+    private static final int MINIMAP_SIZE = 80;
+    private static final int MINIMAP_SCALE = 5;
+
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        // Every column of one frame, traversal only
+        benchmarks.add(new Benchmark("castRay") {
+            private Renderer renderer;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+            }
+
+            @Override
+            public int run() {
+                Camera camera = renderer.getCamera();
+                double[] rayDirX = camera.getRayDirX();
+                double[] rayDirY = camera.getRayDirY();
+                int hits = 0;
+                for (int x = 0; x < camera.getWidth(); x++) {
+                    if (renderer.castRay(x, camera.getPosX(), camera.getPosY(), rayDirX[x], rayDirY[x])) {
+                        hits++;
+                    }
+                }
+                return hits;
+            }
+        });
+
+        // Texturing every wall column of one frame from the cast results
+        benchmarks.add(new Benchmark("drawWallSlice") {
+            private Renderer renderer;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+            }
+
+            @Override
+            public int run() {
+                Camera camera = renderer.getCamera();
+                int[] tiles = renderer.getWallTiles();
+                for (int x = 0; x < camera.getWidth(); x++) {
+                    if (tiles[x] >= 0) {
+                        renderer.drawWallSlice(x, camera.getRayDirX()[x], camera.getRayDirY()[x]);
+                    }
+                }
+                return renderer.getPixels()[0];
+            }
+        });
+
+        // The whole floor half of the view
+        benchmarks.add(new Benchmark("drawTextureRow") {
+            private Renderer renderer;
+            private TextureAtlas floor;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+                floor = TextureAtlas.fromImage(Game.textures.getTile(1));
+            }
+
+            @Override
+            public int run() {
+                int halfHeight = renderer.getCamera().getHalfHeight();
+                for (int y = halfHeight; y < renderer.getCamera().getHeight(); y++) {
+                    renderer.drawTextureRow(floor, y);
+                }
+                return renderer.getPixels()[renderer.getPixels().length - 1];
+            }
+        });
+
+        // Floor, ceiling and walls of one frame in both framebuffer layouts, including the transpose
+        benchmarks.add(wallPass("wallPass.rowMajor", false));
+        benchmarks.add(wallPass("wallPass.columnMajor", true));
+
+        // All fixture sprites, projected, depth sorted and occlusion tested against the walls
+        benchmarks.add(new Benchmark("drawSprite") {
+            private Renderer renderer;
+            private SpriteBatch batch;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+                batch = renderer.getSpriteBatch();
+                batch.clear();
+                for (SpriteEntity entity : renderer.entities) {
+                    entity.render(renderer, fixture.getPlayer());
+                }
+                batch.sortBackToFront();
+                renderer.buildDepthBlocks();
+            }
+
+            @Override
+            public int run() {
+                for (int i = 0; i < batch.size(); i++) {
+                    SpriteBatch.Entry entry = batch.get(i);
+                    renderer.drawSprite(entry.atlas, entry.tileID, entry.screenX, entry.screenY, entry.size, entry.distance, RenderTarget.GAME);
+                }
+                return batch.size();
+            }
+        });
+
+        // A row of shrooms right in front of the camera, each as tall as the view, where sprite fill dominates
+        benchmarks.add(new Benchmark("drawSprite.closeUp") {
+            private static final int SPRITES = 24;
+            private static final double DISTANCE = 0.05;
+            private Renderer renderer;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+                renderer.buildDepthBlocks();
+            }
+
+            @Override
+            public int run() {
+                TextureAtlas atlas = Enemies.SHROOM_TEXTURES.getAtlas();
+                int size = renderer.getViewHeight();
+                int centerY = renderer.getViewHeight() / 2;
+                for (int i = 0; i < SPRITES; i++) {
+                    int screenX = i * renderer.getViewWidth() / SPRITES;
+                    renderer.drawSprite(atlas, 1, screenX, centerY, size, DISTANCE, RenderTarget.GAME);
+                }
+                return SPRITES;
+            }
+        });
+
+        // Projecting every fixture sprite into the batch, including the ones outside the view
+        benchmarks.add(new Benchmark("queueSprite") {
+            private Renderer renderer;
+            private Player player;
+            private SpriteBatch batch;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+                player = fixture.getPlayer();
+                batch = renderer.getSpriteBatch();
+            }
+
+            @Override
+            public int run() {
+                batch.clear();
+                for (SpriteEntity entity : renderer.entities) {
+                    entity.render(renderer, player);
+                }
+                return batch.size();
+            }
+        });
+
+        // One frame worth of pixels through the renderer's shade kernel, one level per row like the floor pass
+        benchmarks.add(new Benchmark("PixelKernels.shade") {
+            private PixelKernels kernels;
+            private ShadeTable table;
+            private int[] colors;
+            private int width;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                kernels = fixture.getRenderer().getPixelKernels();
+                table = fixture.getMap().getShadeTable();
+                width = fixture.getWidth();
+                colors = new int[width * fixture.getHeight()];
+                for (int i = 0; i < colors.length; i++) {
+                    colors[i] = fixture.getRandom().nextInt();
+                }
+            }
+
+            @Override
+            public int run() {
+                // Level 0 keeps the colors, so repeated runs keep shading the same data
+                for (int start = 0; start < colors.length; start += width) {
+                    kernels.shade(colors, start, start + width, table, 0);
+                }
+                return colors[0];
+            }
+        });
+
+        // One frame worth of pixels through the shade table, over all distance levels
+        benchmarks.add(new Benchmark("applyShading") {
+            private Renderer renderer;
+            private int[] colors;
+            private int levels;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+                colors = new int[fixture.getWidth() * fixture.getHeight()];
+                for (int i = 0; i < colors.length; i++) {
+                    colors[i] = fixture.getRandom().nextInt();
+                }
+                levels = fixture.getMap().getShadeTable().getLevelCount();
+            }
+
+            @Override
+            public int run() {
+                int sum = 0;
+                int level = 0;
+                for (int i = 0; i < colors.length; i++) {
+                    sum += renderer.applyShading(colors[i], level);
+                    if (++level == levels) {
+                        level = 0;
+                    }
+                }
+                return sum;
+            }
+        });
+
+        benchmarks.add(new Benchmark("GlyphText.draw") {
+            private final GlyphText text = new GlyphText("FPS:60 shotgun 100", 2);
+            private int[] pixels;
+            private int width;
+            private int height;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                pixels = fixture.getRenderer().getPixels();
+                width = fixture.getWidth();
+                height = fixture.getHeight();
+            }
+
+            @Override
+            public int run() {
+                text.draw(pixels, width, height, 0, 0);
+                return pixels[width + 1];
+            }
+        });
+
+        // Full minimap image, as used for saving
+        benchmarks.add(new Benchmark("MiniMapRenderer.renderMiniMap") {
+            private MiniMapRenderer miniMap;
+            private Player player;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                miniMap = fixture.getRenderer().getWorld().getMiniMapRenderer();
+                player = fixture.getPlayer();
+            }
+
+            @Override
+            public int run() {
+                return miniMap.renderMiniMap(MINIMAP_SCALE, player).getWidth();
+            }
+        });
+
+        // The HUD window of the minimap, as drawn every frame
+        benchmarks.add(new Benchmark("MiniMapRenderer.drawMiniMap") {
+            private BenchmarkFixture fixture;
+            private MiniMapRenderer miniMap;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                this.fixture = fixture;
+                miniMap = fixture.getRenderer().getWorld().getMiniMapRenderer();
+            }
+
+            @Override
+            public int run() {
+                int[] pixels = fixture.getRenderer().getPixels();
+                int x = fixture.getWidth() - MINIMAP_SIZE - 10;
+                int y = fixture.getHeight() - MINIMAP_SIZE - 10;
+                miniMap.drawMiniMap(pixels, fixture.getWidth(), fixture.getHeight(), x, y,
+                        MINIMAP_SIZE, MINIMAP_SCALE, fixture.getPlayer(), fixture.getRenderer().entities);
+                return pixels[y * fixture.getWidth() + x];
+            }
+        });
+
+        return benchmarks;
+    }
+
+    private static Benchmark wallPass(String name, boolean columnMajor) {
+        return new Benchmark(name) {
+            private Renderer renderer;
+
+            @Override
+            public void setUp(BenchmarkFixture fixture) {
+                renderer = fixture.getRenderer();
+                renderer.setColumnMajor(columnMajor);
+            }
+
+            @Override
+            public int run() {
+                if (!columnMajor) {
+                    renderer.drawCeilingAndFloor();
+                }
+                renderer.castRays();
+                renderer.transposeView();
+                return renderer.getPixels()[0];
+            }
+
+            @Override
+            public void tearDown(BenchmarkFixture fixture) {
+                renderer.setColumnMajor(Game.COLUMN_MAJOR);
+            }
+        };
+    }
+}
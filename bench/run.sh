@@ -0,0 +1,13 @@
+#!/bin/sh
+# Builds src/ and bench/ into build/bench and runs the renderer benchmarks. Arguments go to BenchmarkRunner
+# (a benchmark name filter), JVM flags and bench.* properties go in JAVA_OPTS, e.g.
+#   bench/run.sh drawSprite
+#   JAVA_OPTS="-Dbench.resolutions=640x480 -Dbench.seeds=1 -Dbench.forks=2" bench/run.sh wallPass
+set -e
+cd "$(dirname "$0")/.."
+out=build/bench
+rm -rf "$out"
+mkdir -p "$out"
+javac -nowarn -source 8 -target 8 -encoding UTF-8 -d "$out" $(find src bench -name '*.java')
+cp -r src/potato/sprites "$out/potato/"
+exec java $JAVA_OPTS -cp "$out" potato.BenchmarkRunner "$@"
@@ -0,0 +1,115 @@
+package potato;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+public class BufferStrategyPresenter implements Presenter {
+    private final Canvas canvas;
+    private final boolean vsync;
+    private BufferStrategy strategy;
+    private VolatileImage surface;
+    private boolean pageFlipping;
+    private boolean vsyncActive;
+    private boolean fallbackLogged;
+    private final Logger logger = new Logger(getClass().getName());
+
+    // Uploads the frame into a VolatileImage in the screen's format, then copies that into the
+    // back buffer and flips. With vsync the flip waits for the display
+    public BufferStrategyPresenter(Canvas canvas, boolean vsync) {
+        if (!canvas.isDisplayable()) {
+            throw new IllegalStateException("Canvas is not displayable");
+        }
+        this.canvas = canvas;
+        this.vsync = vsync;
+        createStrategy();
+    }
+
+    private void createStrategy() {
+        BufferCapabilities flip = new BufferCapabilities(
+                new ImageCapabilities(true), new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED);
+        try {
+            canvas.createBufferStrategy(2, vsync ? withVSync(flip) : flip);
+            vsyncActive = vsync;
+        } catch (Exception e) {
+            // No page flipping (or no vsync) on this display, let AWT pick a blit strategy
+            if (!fallbackLogged) {
+                logger.log((vsync ? "Vsync unavailable, presenting without it: " : "Page flipping unavailable: ") + e);
+                fallbackLogged = true;
+            }
+            canvas.createBufferStrategy(2);
+            vsyncActive = false;
+        }
+        strategy = canvas.getBufferStrategy();
+        pageFlipping = strategy.getCapabilities().isPageFlipping();
+    }
+
+    // Vsync is only exposed through the JDK internal ExtendedBufferCapabilities
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static BufferCapabilities withVSync(BufferCapabilities capabilities) throws Exception {
+        Class<?> extendedClass = Class.forName("sun.java2d.pipe.hw.ExtendedBufferCapabilities");
+        Class vsyncType = Class.forName("sun.java2d.pipe.hw.ExtendedBufferCapabilities$VSyncType");
+        Object vsyncOn = Enum.valueOf(vsyncType, "VSYNC_ON");
+        return (BufferCapabilities) extendedClass.getConstructor(BufferCapabilities.class, vsyncType)
+                .newInstance(capabilities, vsyncOn);
+    }
+
+    @Override
+    public String getName() {
+        return pageFlipping ? "bufferstrategy (page flip)" : "bufferstrategy (blit)";
+    }
+
+    @Override
+    public void present(BufferedImage frame) {
+        do {
+            do {
+                upload(frame);
+                Graphics g = strategy.getDrawGraphics();
+                g.drawImage(surface, 0, 0, null);
+                g.dispose();
+            } while (strategy.contentsRestored() || surface.contentsLost());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void upload(BufferedImage frame) {
+        GraphicsConfiguration configuration = canvas.getGraphicsConfiguration();
+        if (surface == null
+                || surface.getWidth() != frame.getWidth()
+                || surface.getHeight() != frame.getHeight()
+                || surface.validate(configuration) == VolatileImage.IMAGE_INCOMPATIBLE) {
+            if (surface != null) {
+                surface.flush();
+            }
+            surface = configuration.createCompatibleVolatileImage(frame.getWidth(), frame.getHeight());
+        }
+        Graphics2D g = surface.createGraphics();
+        g.drawImage(frame, 0, 0, null);
+        g.dispose();
+    }
+
+    public boolean isPageFlipping() {
+        return pageFlipping;
+    }
+
+    // False when vsync was requested but the strategy had to fall back to one without it
+    public boolean isVSync() {
+        return vsyncActive;
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        strategy.dispose();
+        createStrategy();
+    }
+
+    @Override
+    public void dispose() {
+        strategy.dispose();
+        if (surface != null) {
+            surface.flush();
+        }
+    }
+}
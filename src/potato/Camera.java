@@ -0,0 +1,125 @@
+package potato;
+
+public class Camera {
+    private int width;
+    private int height;
+    private int halfHeight;
+    private double[] cameraX;
+    private double[] rowDistance;
+    private double[] rayDirX;
+    private double[] rayDirY;
+    private double posX;
+    private double posY;
+    private double angle;
+    private double dirX;
+    private double dirY;
+    private double planeX;
+    private double planeY;
+    private double invDet;
+
+    public Camera(int width, int height) {
+        resize(width, height);
+    }
+
+    // Rebuilds the tables that only depend on the view size
+    public void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.halfHeight = height / 2;
+        this.cameraX = new double[width];
+        this.rayDirX = new double[width];
+        this.rayDirY = new double[width];
+        this.rowDistance = new double[height];
+
+        for (int x = 0; x < width; x++) {
+            cameraX[x] = 2 * x / (double) width - 1;
+        }
+        double planeZ = 0.5 * height;
+        for (int y = 0; y < height; y++) {
+            rowDistance[y] = planeZ / (y - halfHeight + 0.1);
+        }
+    }
+
+    // Called once per frame; this is the only place the renderer evaluates trig for the view
+    public void update(Player player) {
+        posX = player.getX();
+        posY = player.getY();
+        angle = player.getAngle();
+        dirX = Math.cos(angle);
+        dirY = Math.sin(angle);
+        planeX = player.getPlaneX();
+        planeY = player.getPlaneY();
+        // Inverse of the [plane dir] matrix, to take world offsets into camera space
+        invDet = 1.0 / (planeX * dirY - dirX * planeY);
+        for (int x = 0; x < width; x++) {
+            rayDirX[x] = dirX + planeX * cameraX[x];
+            rayDirY[x] = dirY + planeY * cameraX[x];
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getHalfHeight() {
+        return halfHeight;
+    }
+
+    public double[] getCameraX() {
+        return cameraX;
+    }
+
+    public double[] getRowDistance() {
+        return rowDistance;
+    }
+
+    public double[] getRayDirX() {
+        return rayDirX;
+    }
+
+    public double[] getRayDirY() {
+        return rayDirY;
+    }
+
+    public double getPosX() {
+        return posX;
+    }
+
+    public double getPosY() {
+        return posY;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public double getDirX() {
+        return dirX;
+    }
+
+    public double getDirY() {
+        return dirY;
+    }
+
+    public double getPlaneX() {
+        return planeX;
+    }
+
+    public double getPlaneY() {
+        return planeY;
+    }
+
+    // Camera-space coordinates of a world offset from the camera: transformX / transformY is the same
+    // cameraX the ray for that screen column uses, and transformY is the perpendicular depth walls use
+    public double transformX(double dx, double dy) {
+        return invDet * (dirY * dx - dirX * dy);
+    }
+
+    public double transformY(double dx, double dy) {
+        return invDet * (planeX * dy - planeY * dx);
+    }
+}
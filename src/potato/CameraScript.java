@@ -0,0 +1,72 @@
+package potato;
+
+public class CameraScript {
+    private static final double TURN_PER_FRAME = Math.PI / 180;
+    private static final double STEP_PER_FRAME = 0.05;
+    private static final double WALL_MARGIN = 0.6;
+
+    private final Map map;
+    private double x;
+    private double y;
+    private double angle;
+    private double stepPerFrame = STEP_PER_FRAME;
+    private double turnPerFrame = TURN_PER_FRAME;
+
+    // A fixed walk through the map: move forward while the way is clear, keep turning slowly,
+    // and turn away from walls. Same map and start always gives the same sequence of poses
+    public CameraScript(Map map, double startX, double startY, double startAngle) {
+        this.map = map;
+        this.x = startX;
+        this.y = startY;
+        this.angle = startAngle;
+    }
+
+    // "walk" (the default), "turn" in place, or stand "still"
+    public void setMotion(String motion) {
+        switch (motion) {
+            case "walk":
+                stepPerFrame = STEP_PER_FRAME;
+                turnPerFrame = TURN_PER_FRAME;
+                break;
+            case "turn":
+                stepPerFrame = 0;
+                turnPerFrame = TURN_PER_FRAME;
+                break;
+            case "still":
+                stepPerFrame = 0;
+                turnPerFrame = 0;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown camera motion " + motion);
+        }
+    }
+
+    public void step(Player player) {
+        if (stepPerFrame == 0) {
+            angle += turnPerFrame;
+            apply(player);
+            return;
+        }
+        double nextX = x + Math.cos(angle) * stepPerFrame;
+        double nextY = y + Math.sin(angle) * stepPerFrame;
+        double probeX = nextX + Math.cos(angle) * WALL_MARGIN;
+        double probeY = nextY + Math.sin(angle) * WALL_MARGIN;
+        if (map.isWall((int) probeX, (int) probeY)) {
+            angle += Math.PI / 2;
+        } else {
+            x = nextX;
+            y = nextY;
+            angle += turnPerFrame;
+        }
+        apply(player);
+    }
+
+    public void apply(Player player) {
+        double planeLength = Math.tan(Renderer.HALF_FOV);
+        player.setX(x);
+        player.setY(y);
+        player.setAngle(angle);
+        player.setPlaneX(-planeLength * Math.sin(angle));
+        player.setPlaneY(planeLength * Math.cos(angle));
+    }
+}
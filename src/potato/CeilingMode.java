@@ -0,0 +1,8 @@
+package potato;
+
+public enum CeilingMode {
+    // The ceiling image is cast as a textured plane above the walls
+    TEXTURED,
+    // The ceiling image is stretched into a panorama around the player, indexed by view angle and screen row
+    SKY
+}
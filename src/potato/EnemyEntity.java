@@ -25,7 +25,7 @@ public abstract class EnemyEntity extends SpriteEntity {
     private final float attackCooldown = 1000; // 1 second
     private float attackTimer = 0;
     public EnemyEntity(double x, double y, Textures spriteSheet, double speed, int maxHealth, int attackDamage) {
-        super(x, y, spriteSheet.getTile(1), speed);
+        super(x, y, spriteSheet, 1, speed);
         this.spritesheet = spriteSheet;
         this.maxHealth = maxHealth;
         this.health = maxHealth;
@@ -39,7 +39,7 @@ public abstract class EnemyEntity extends SpriteEntity {
             frameDelta = 0;
             currentFrameIndex = (currentFrameIndex + 1) % STATE_FRAMES.get(currentState).length;
             int tileId = STATE_FRAMES.get(currentState)[currentFrameIndex];
-            setSprite(spritesheet.getTile(tileId));
+            setSprite(spritesheet, tileId);
         }
     }
 
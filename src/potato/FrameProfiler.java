@@ -0,0 +1,206 @@
+package potato;
+
+import java.util.Arrays;
+
+public class FrameProfiler {
+    // Render stages
+    public static final int CLEAR = 0;
+    public static final int FLOOR = 1;
+    public static final int WALLS = 2;
+    public static final int ENTITIES = 3;
+    public static final int PLAYERS = 4;
+    public static final int PROJECTILES = 5;
+    public static final int SPRITES = 6;
+    public static final int TRANSPOSE = 7;
+    public static final int UPSCALE = 8;
+    public static final int WEAPON = 9;
+    public static final int HUD = 10;
+    public static final int MODS = 11;
+    public static final int PRESENT = 12;
+    // Game.update subsystems
+    public static final int UPDATE_NETWORK = 13;
+    public static final int UPDATE_PLAYER = 14;
+    public static final int UPDATE_PROJECTILES = 15;
+    public static final int UPDATE_ENTITIES = 16;
+    public static final int UPDATE_HUD = 17;
+    public static final int UPDATE_MODS = 18;
+    private static final String[] STAGE_NAMES = {
+            "clear", "floor", "walls", "entities", "players", "projectiles", "sprites", "transpose", "upscale",
+            "weapon", "hud", "mods", "present",
+            "u.network", "u.player", "u.projectiles", "u.entities", "u.hud", "u.mods"
+    };
+    private static final int STAGE_COUNT = STAGE_NAMES.length;
+    private static final int HISTORY = 128; // Frames kept per stage, power of two
+    private static final int LINE_HEIGHT = 9;
+    private static final int PANEL_WIDTH = 232;
+    private static final int GRAPH_HEIGHT = 48;
+    private static final long GRAPH_NANOS_PER_PIXEL = 500_000; // 0.5 ms per pixel
+    private static final long TARGET_FRAME_NANOS = 16_666_667;
+    private static final int PANEL_COLOR = 0x202020;
+    private static final int GRAPH_COLOR = 0x40C040;
+    private static final int SLOW_FRAME_COLOR = 0xE04040;
+    private static final int TARGET_LINE_COLOR = 0xFFFF00;
+
+    private final long[] starts = new long[STAGE_COUNT];
+    private final long[] current = new long[STAGE_COUNT];
+    private final long[][] history = new long[STAGE_COUNT][HISTORY];
+    private final long[] frameHistory = new long[HISTORY];
+    private final long[] scratch = new long[HISTORY];
+    private final String[] labels = new String[STAGE_COUNT + 1];
+    private final GlyphText[] averageTexts = new GlyphText[STAGE_COUNT + 1];
+    private final GlyphText[] p99Texts = new GlyphText[STAGE_COUNT + 1];
+    private int frame;
+    private int recordedFrames;
+    // Toggled from the event thread; the render thread owns the buffers, so it does the reset itself
+    private volatile boolean enabled;
+    private volatile boolean resetPending;
+
+    // Everything is preallocated, so recording and drawing the overlay allocate nothing per frame
+    public FrameProfiler() {
+        for (int stage = 0; stage <= STAGE_COUNT; stage++) {
+            StringBuilder label = new StringBuilder(stage < STAGE_COUNT ? STAGE_NAMES[stage] : "frame");
+            while (label.length() < 14) {
+                label.append(' ');
+            }
+            labels[stage] = label.toString();
+            averageTexts[stage] = new GlyphText("", 1);
+            p99Texts[stage] = new GlyphText("", 1);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            resetPending = true;
+        }
+        this.enabled = enabled;
+    }
+
+    public void toggle() {
+        setEnabled(!enabled);
+    }
+
+    public void begin(int stage) {
+        if (enabled) {
+            starts[stage] = System.nanoTime();
+        }
+    }
+
+    public void end(int stage) {
+        if (enabled) {
+            current[stage] += System.nanoTime() - starts[stage];
+        }
+    }
+
+    // Opens a frame: stage time left over from a frame that never reached endFrame (pause, level load, an
+    // early return from render) is dropped instead of being added to this one
+    public void beginFrame() {
+        if (enabled) {
+            Arrays.fill(current, 0);
+        }
+    }
+
+    // Closes the current frame: the accumulated stage times go into the ring buffers
+    public void endFrame() {
+        if (!enabled) {
+            return;
+        }
+        if (resetPending) {
+            resetPending = false;
+            reset();
+            return;
+        }
+        int slot = frame & (HISTORY - 1);
+        long total = 0;
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            history[stage][slot] = current[stage];
+            total += current[stage];
+            current[stage] = 0;
+        }
+        frameHistory[slot] = total;
+        frame++;
+        recordedFrames = Math.min(HISTORY, recordedFrames + 1);
+    }
+
+    private void reset() {
+        Arrays.fill(current, 0);
+        Arrays.fill(frameHistory, 0);
+        for (long[] stageHistory : history) {
+            Arrays.fill(stageHistory, 0);
+        }
+        frame = 0;
+        recordedFrames = 0;
+    }
+
+    public long getAverageNanos(int stage) {
+        return average(stage < STAGE_COUNT ? history[stage] : frameHistory);
+    }
+
+    public long getP99Nanos(int stage) {
+        return p99(stage < STAGE_COUNT ? history[stage] : frameHistory);
+    }
+
+    private long average(long[] samples) {
+        if (recordedFrames == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < recordedFrames; i++) {
+            sum += samples[i];
+        }
+        return sum / recordedFrames;
+    }
+
+    private long p99(long[] samples) {
+        if (recordedFrames == 0) {
+            return 0;
+        }
+        System.arraycopy(samples, 0, scratch, 0, recordedFrames);
+        Arrays.sort(scratch, 0, recordedFrames);
+        return scratch[Math.min(recordedFrames - 1, (int) Math.ceil(recordedFrames * 0.99) - 1)];
+    }
+
+    // One line per stage with the rolling average and p99 in microseconds, then a graph of the last frames
+    public void draw(int[] pixels, int width, int height, int x, int y) {
+        if (!enabled) {
+            return;
+        }
+        int lines = STAGE_COUNT + 1;
+        int panelHeight = lines * LINE_HEIGHT + GRAPH_HEIGHT + 6;
+        fill(pixels, width, height, x, y, PANEL_WIDTH, panelHeight, PANEL_COLOR);
+
+        for (int stage = 0; stage < lines; stage++) {
+            int lineY = y + 2 + stage * LINE_HEIGHT;
+            averageTexts[stage].setNumber(labels[stage], getAverageNanos(stage) / 1000);
+            averageTexts[stage].draw(pixels, width, height, x + 2, lineY);
+            p99Texts[stage].setNumber("p99 ", getP99Nanos(stage) / 1000);
+            p99Texts[stage].draw(pixels, width, height, x + 2 + 20 * 8, lineY);
+        }
+
+        int graphBottom = y + panelHeight - 3;
+        for (int i = 0; i < recordedFrames && i < PANEL_WIDTH - 4; i++) {
+            long nanos = frameHistory[(frame - 1 - i) & (HISTORY - 1)];
+            int barHeight = (int) Math.min(GRAPH_HEIGHT, nanos / GRAPH_NANOS_PER_PIXEL);
+            int color = nanos > TARGET_FRAME_NANOS ? SLOW_FRAME_COLOR : GRAPH_COLOR;
+            fill(pixels, width, height, x + PANEL_WIDTH - 3 - i, graphBottom - barHeight, 1, barHeight, color);
+        }
+        int targetY = graphBottom - (int) (TARGET_FRAME_NANOS / GRAPH_NANOS_PER_PIXEL);
+        fill(pixels, width, height, x + 2, targetY, PANEL_WIDTH - 4, 1, TARGET_LINE_COLOR);
+    }
+
+    private static void fill(int[] pixels, int width, int height, int x, int y, int w, int h, int color) {
+        int startX = Math.max(0, x);
+        int endX = Math.min(width, x + w);
+        int startY = Math.max(0, y);
+        int endY = Math.min(height, y + h);
+        if (startX >= endX) {
+            return;
+        }
+        for (int row = startY; row < endY; row++) {
+            Arrays.fill(pixels, row * width + startX, row * width + endX, color);
+        }
+    }
+}
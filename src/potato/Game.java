@@ -8,12 +8,25 @@ import potato.modsupport.ModLoader;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.KeyEvent;
 import java.io.IOException;
 
 public class Game extends JFrame {
     public static final ModLoader MOD_LOADER = new ModLoader();
     public static int WIDTH = 640;
     public static int HEIGHT = 480;
+    public static int RENDER_THREADS = Integer.getInteger("potato.renderThreads", Runtime.getRuntime().availableProcessors());
+    public static double RENDER_SCALE = Double.parseDouble(System.getProperty("potato.renderScale", "1.0"));
+    public static boolean DYNAMIC_RESOLUTION = Boolean.getBoolean("potato.dynamicResolution");
+    public static final double MIN_RENDER_SCALE = 0.5;
+    public static String PRESENTER = System.getProperty("potato.presenter");
+    public static boolean VSYNC = Boolean.getBoolean("potato.vsync");
+    public static boolean COLUMN_MAJOR = Boolean.getBoolean("potato.columnMajor");
+    public static String PIXEL_KERNELS = System.getProperty("potato.pixelKernels", "auto");
+    public static boolean TEMPORAL_REUSE = Boolean.getBoolean("potato.temporalReuse");
+    public static boolean PALETTIZED = Boolean.getBoolean("potato.palettized");
+    public static boolean MIPMAPS = !"false".equals(System.getProperty("potato.mipmaps"));
+    public static final int PROFILER_KEY = KeyEvent.VK_F3;
     public static Renderer renderer;
     public static Player player;
     public static Textures textures;
@@ -52,9 +65,7 @@ public class Game extends JFrame {
         setResizable(false);
 
         player = new Player(1.5, 1.5, 0);
-        textures = new Textures("/potato/sprites/textures.png", 16, 16);
-        hudTextures = new Textures("/potato/sprites/hud.png", 32, 32);
-        projectileTextures = new Textures("/potato/sprites/gun/boolet.png", 32, 32);
+        loadTextures();
         canvas = new Canvas();
         canvas.setPreferredSize(new Dimension(WIDTH, HEIGHT));
         add(canvas);
@@ -63,7 +74,6 @@ public class Game extends JFrame {
         setLocationRelativeTo(null);
         setVisible(true);
 
-        canvas.createBufferStrategy(2);
         try {
             LinuxGamepadInputHandler linuxGamepadInputHandler = new LinuxGamepadInputHandler(0);
             inputHandler.setActiveHandler(linuxGamepadInputHandler);
@@ -73,13 +83,40 @@ public class Game extends JFrame {
             System.out.println("Falling back to default keyboard input.");
         }
 
-        renderer = new Renderer(WIDTH, HEIGHT, canvas, player);
+        renderer = new Renderer(WIDTH, HEIGHT, canvas, player, RENDER_THREADS);
+        renderer.setRenderScale(RENDER_SCALE);
+        if (DYNAMIC_RESOLUTION) {
+            renderer.setResolutionController(new ResolutionController(GameLoop.EXPECTED_FPS, MIN_RENDER_SCALE, renderer.getRenderScale()));
+        }
+        inputHandler.registerExtension(new InputHandler.InputHandlerExtension() {
+            @Override
+            public void onKeyPressed(int keyCode) {
+                if (keyCode == PROFILER_KEY) {
+                    Renderer.PROFILER.toggle();
+                }
+            }
+
+            @Override
+            public void onKeyReleased(int keyCode) {
+            }
+        });
         addKeyListener(inputHandler);
         canvas.addKeyListener(inputHandler);
         gameLoop = new GameLoop(this);
     }
 
-    public static void main(String[] args) {
+    public static void loadTextures() {
+        textures = new Textures("/potato/sprites/textures.png", 16, 16);
+        hudTextures = new Textures("/potato/sprites/hud.png", 32, 32);
+        projectileTextures = new Textures("/potato/sprites/gun/boolet.png", 32, 32);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            System.setProperty("java.awt.headless", "true");
+            HeadlessRunner.main(args);
+            System.exit(0);
+        }
         SwingUtilities.invokeLater(() -> {
             Game game;
             if (args.length == 2) {
@@ -105,36 +142,53 @@ public class Game extends JFrame {
     }
 
     public void start() {
+        if (!isMultiplayer) {
+            changeLevel(new Map(32, 32, 123));
+        }
         gameLoop.start();
     }
 
+    // Builds the world session for a new level; the renderer only reads from it afterwards
+    public static void changeLevel(Map map) {
+        renderer.setWorld(new World(map, textures));
+    }
+
     public void update()
     {
+        FrameProfiler profiler = Renderer.PROFILER;
+        profiler.beginFrame();
+        profiler.begin(FrameProfiler.UPDATE_NETWORK);
         renderer.updateMP(); // This now includes multiplayer updates if applicablewwwwwwww
+        profiler.end(FrameProfiler.UPDATE_NETWORK);
         if (isPaused()){return;}
+        profiler.begin(FrameProfiler.UPDATE_PLAYER);
         player.update();
+        profiler.end(FrameProfiler.UPDATE_PLAYER);
+        profiler.begin(FrameProfiler.UPDATE_PROJECTILES);
         for (Projectile projectile : Game.renderer.projectiles) {
             projectile.update();
         }
+        profiler.end(FrameProfiler.UPDATE_PROJECTILES);
+        profiler.begin(FrameProfiler.UPDATE_ENTITIES);
         for (SpriteEntity spriteEntity : Game.renderer.entities) {
             spriteEntity.update();
         }
+        profiler.end(FrameProfiler.UPDATE_ENTITIES);
+        profiler.begin(FrameProfiler.UPDATE_HUD);
         updateHUD();
+        profiler.end(FrameProfiler.UPDATE_HUD);
+        profiler.begin(FrameProfiler.UPDATE_MODS);
         MOD_LOADER.updateMods();
+        profiler.end(FrameProfiler.UPDATE_MODS);
     }
 
+    // Weapon name and ammo texts are refreshed by the HUD layer when they change
     private void updateHUD() {
-        if (player.getWeapon() == null) {
-            Renderer.GUN_NAME_TEXT.setText("Unarmed");
-            Renderer.GUN_AMMO_TEXT.setText("");
-        } else {
-            Renderer.GUN_NAME_TEXT.setText(player.getWeapon().getName());
-            Renderer.GUN_AMMO_TEXT.setText(String.valueOf(player.getWeapon().getAmmo()));
-        }
-        Renderer.FPS_TEXT.setText("FPS:" + gameLoop.getFPS());
+        Renderer.FPS_TEXT.setNumber("FPS:", gameLoop.getFPS());
     }
 
     public void render() {
+        renderer.updateRenderScale(gameLoop.getFrameTimeMillis());
         renderer.render();
     }
 
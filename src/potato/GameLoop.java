@@ -14,6 +14,7 @@ public class GameLoop implements Runnable {
     private int frameCount = 0;
     private float fpsTimer = 0;
     private long fps = 0;
+    private float frameTimeMillis; // Time spent in update and render, without any sleep
     private final Thread thread = new Thread(this);
 
     public GameLoop(Game game) {
@@ -36,6 +37,10 @@ public class GameLoop implements Runnable {
         return deltaTimeMillis;
     }
 
+    public float getFrameTimeMillis() {
+        return frameTimeMillis;
+    }
+
     public long getFPS() {
         return fps;
     }
@@ -77,6 +82,7 @@ public class GameLoop implements Runnable {
                 game.update();
                 game.render();
                 updateFPS();
+                frameTimeMillis = (System.nanoTime() - currentTime) / NANOS_PER_SECOND * MILLIS_PER_SECOND;
 
                 int targetFPS = getTargetFPS();
                 if (targetFPS > 0) {
@@ -12,6 +12,8 @@ public class GlyphRenderer {
     private static final int TOTAL_GLYPHS = 256;
 
     private Map<Character, BufferedImage> glyphCache;
+    private boolean[][] glyphMasks = new boolean[TOTAL_GLYPHS][];
+    private final Map<Long, int[][]> rasterCache = new HashMap<>();
 
     public GlyphRenderer(String spritesheetPath) {
         try {
@@ -31,9 +33,54 @@ public class GlyphRenderer {
             int sy = row * GLYPH_HEIGHT;
             BufferedImage glyphImage = spritesheet.getSubimage(sx, sy, GLYPH_WIDTH, GLYPH_HEIGHT);
             glyphCache.put((char) i, glyphImage);
+            glyphMasks[i] = createMask(glyphImage);
         }
     }
 
+    private static boolean[] createMask(BufferedImage glyphImage) {
+        boolean[] mask = new boolean[GLYPH_WIDTH * GLYPH_HEIGHT];
+        for (int y = 0; y < GLYPH_HEIGHT; y++) {
+            for (int x = 0; x < GLYPH_WIDTH; x++) {
+                int argb = glyphImage.getRGB(x, y);
+                mask[y * GLYPH_WIDTH + x] = (argb >>> 24) != 0 && (argb & 0xFF) != 0;
+            }
+        }
+        return mask;
+    }
+
+    // All glyphs scaled up and filled with one color, indexed by character; 0 marks an unlit pixel.
+    // Built once per scale and color, so drawing text is just copying pixels
+    public synchronized int[][] getGlyphPixels(int scale, int rgb) {
+        long key = ((long) scale << 32) | (rgb & 0xFFFFFFFFL);
+        int[][] glyphs = rasterCache.get(key);
+        if (glyphs == null) {
+            glyphs = rasterize(scale, rgb | 0xFF000000);
+            rasterCache.put(key, glyphs);
+        }
+        return glyphs;
+    }
+
+    private int[][] rasterize(int scale, int argb) {
+        int scaledWidth = GLYPH_WIDTH * scale;
+        int[][] glyphs = new int[TOTAL_GLYPHS][];
+        for (int i = 0; i < TOTAL_GLYPHS; i++) {
+            boolean[] mask = glyphMasks[i];
+            if (mask == null) {
+                continue;
+            }
+            int[] pixels = new int[scaledWidth * GLYPH_HEIGHT * scale];
+            for (int y = 0; y < GLYPH_HEIGHT * scale; y++) {
+                for (int x = 0; x < scaledWidth; x++) {
+                    if (mask[(y / scale) * GLYPH_WIDTH + x / scale]) {
+                        pixels[y * scaledWidth + x] = argb;
+                    }
+                }
+            }
+            glyphs[i] = pixels;
+        }
+        return glyphs;
+    }
+
     public BufferedImage getGlyphImage(char glyph) {
         return glyphCache.get(glyph);
     }
@@ -2,85 +2,106 @@ package potato;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 public class GlyphText {
     private final GlyphRenderer renderer;
+    private char[] chars = new char[16];
+    private int length;
     private String text;
     private int scale;
     private Color textColor;
     private Color backgroundColor;
+    private int[][] glyphs;
+    private BufferedImage layoutImage;
+    private int[] layoutPixels;
+    private boolean layoutDirty = true;
 
     public GlyphText(String text, int scale) {
-        this.text = text;
-        this.scale = scale;
-        this.textColor = Color.WHITE;
-        this.backgroundColor = null;
-        this.renderer = Renderer.TextRenderer;
+        this(Renderer.TextRenderer, text, scale);
     }
 
     public GlyphText(GlyphRenderer renderer, String text, int scale) {
         this.renderer = renderer;
-        this.text = text;
+        this.scale = scale;
         this.textColor = Color.WHITE;
         this.backgroundColor = null;
+        setText(text);
     }
 
-    public void draw(Graphics2D g, int x, int y) {
-        if (text.isEmpty()) {
+    // Blits the text straight into an int[] framebuffer, clipped to its bounds
+    public void draw(int[] target, int targetWidth, int targetHeight, int x, int y) {
+        if (length == 0) {
             return;
         }
+        int glyphWidth = renderer.getGlyphWidth() * scale;
+        int glyphHeight = renderer.getGlyphHeight() * scale;
+        int startY = Math.max(0, y);
+        int endY = Math.min(targetHeight, y + glyphHeight);
         if (backgroundColor != null) {
-            g.setColor(backgroundColor);
-            g.fillRect(x, y, getWidth(), getHeight());
-        }
-
-        int currentX = x;
-        for (char c : text.toCharArray()) {
-            drawGlyph(g, c, currentX, y);
-            currentX += renderer.getGlyphWidth() * scale;
+            int startX = Math.max(0, x);
+            int endX = Math.min(targetWidth, x + getWidth());
+            if (startX < endX) {
+                int color = backgroundColor.getRGB();
+                for (int py = startY; py < endY; py++) {
+                    Arrays.fill(target, py * targetWidth + startX, py * targetWidth + endX, color);
+                }
+            }
         }
-    }
 
-
-    private void drawGlyph(Graphics2D g, char glyph, int x, int y) {
-        BufferedImage glyphImage = renderer.getGlyphImage(glyph);
-        if (glyphImage != null) {
-            int scaledWidth = renderer.getGlyphWidth() * scale;
-            int scaledHeight = renderer.getGlyphHeight() * scale;
-
-            // Create a temporary image for the scaled glyph
-            BufferedImage scaledGlyph = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D gScaled = scaledGlyph.createGraphics();
-
-            // Draw the scaled glyph
-            gScaled.drawImage(glyphImage, 0, 0, scaledWidth, scaledHeight, null);
-            gScaled.dispose();
-
-            // Draw background if set
-            if (backgroundColor != null) {
-                g.setColor(backgroundColor);
-                g.fillRect(x, y, scaledWidth, scaledHeight);
+        int[][] glyphs = getGlyphs();
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            int glyphX = x + i * glyphWidth;
+            if (c >= glyphs.length || glyphs[c] == null) {
+                continue;
             }
-
-            // Draw the glyph
-            for (int px = 0; px < scaledWidth; px++) {
-                for (int py = 0; py < scaledHeight; py++) {
-                    int pixelColor = scaledGlyph.getRGB(px, py);
-                    if ((pixelColor & 0xFF) > 0) {  // Check if the pixel is not fully transparent
-                        g.setColor(textColor);
-                        g.drawLine(x + px, y + py, x + px, y + py);
+            int[] glyph = glyphs[c];
+            int startX = Math.max(0, glyphX);
+            int endX = Math.min(targetWidth, glyphX + glyphWidth);
+            for (int py = startY; py < endY; py++) {
+                int src = (py - y) * glyphWidth - glyphX;
+                int dst = py * targetWidth;
+                for (int px = startX; px < endX; px++) {
+                    int color = glyph[src + px];
+                    if (color != 0) {
+                        target[dst + px] = color;
                     }
                 }
             }
+        }
+    }
 
-            // Debug: Draw a border around the glyph area
-            //g.setColor(Color.RED);
-            //g.drawRect(x, y, scaledWidth - 1, scaledHeight - 1);
+    // The laid out text is kept in an image that is only redrawn when the text or its style changes
+    public void draw(Graphics2D g, int x, int y) {
+        if (length == 0) {
+            return;
+        }
+        if (layoutDirty) {
+            int width = getWidth();
+            int height = getHeight();
+            if (layoutImage == null || layoutImage.getWidth() != width || layoutImage.getHeight() != height) {
+                layoutImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                layoutPixels = ((DataBufferInt) layoutImage.getRaster().getDataBuffer()).getData();
+            } else {
+                Arrays.fill(layoutPixels, 0);
+            }
+            draw(layoutPixels, width, height, 0, 0);
+            layoutDirty = false;
         }
+        g.drawImage(layoutImage, x, y, null);
+    }
+
+    private int[][] getGlyphs() {
+        if (glyphs == null) {
+            glyphs = renderer.getGlyphPixels(scale, textColor.getRGB());
+        }
+        return glyphs;
     }
 
     public int getWidth() {
-        return text.length() * renderer.getGlyphWidth() * scale;
+        return length * renderer.getGlyphWidth() * scale;
     }
 
     public int getHeight() {
@@ -88,30 +109,93 @@ public class GlyphText {
     }
 
     public GlyphText setTextColor(Color color) {
-        this.textColor = color;
+        if (!color.equals(textColor)) {
+            this.textColor = color;
+            glyphs = null;
+            layoutDirty = true;
+        }
         return this;
     }
 
     public GlyphText setBackgroundColor(Color color) {
         this.backgroundColor = color;
+        layoutDirty = true;
         return this;
     }
 
     public String getText() {
+        if (text == null) {
+            text = new String(chars, 0, length);
+        }
         return text;
     }
 
     public GlyphText setText(String text) {
+        if (text.equals(this.text)) {
+            return this;
+        }
+        ensureCapacity(text.length());
+        text.getChars(0, text.length(), chars, 0);
+        length = text.length();
         this.text = text;
+        layoutDirty = true;
+        return this;
+    }
+
+    // Formats prefix + value into the character buffer without creating a String; the layout is only
+    // invalidated if the characters actually change
+    public GlyphText setNumber(String prefix, long value) {
+        int digits = 1;
+        for (long rest = Math.abs(value / 10); rest != 0; rest /= 10) {
+            digits++;
+        }
+        int newLength = prefix.length() + (value < 0 ? 1 : 0) + digits;
+        ensureCapacity(newLength);
+
+        boolean changed = newLength != length;
+        for (int i = 0; i < prefix.length(); i++) {
+            changed |= chars[i] != prefix.charAt(i);
+            chars[i] = prefix.charAt(i);
+        }
+        if (value < 0) {
+            changed |= chars[prefix.length()] != '-';
+            chars[prefix.length()] = '-';
+        }
+        long rest = value;
+        for (int i = newLength - 1; i >= newLength - digits; i--) {
+            char digit = (char) ('0' + Math.abs(rest % 10));
+            changed |= chars[i] != digit;
+            chars[i] = digit;
+            rest /= 10;
+        }
+        if (changed) {
+            length = newLength;
+            text = null;
+            layoutDirty = true;
+        }
         return this;
     }
 
+    public GlyphText setNumber(long value) {
+        return setNumber("", value);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
     public int getScale() {
         return scale;
     }
 
     public GlyphText setScale(int scale) {
-        this.scale = scale;
+        if (scale != this.scale) {
+            this.scale = scale;
+            glyphs = null;
+            layoutDirty = true;
+        }
         return this;
     }
-}
\ No newline at end of file
+}
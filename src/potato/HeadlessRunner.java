@@ -0,0 +1,169 @@
+package potato;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+public class HeadlessRunner {
+    private final int width;
+    private final int height;
+    private final int frames;
+    private final int warmupFrames;
+    private final long seed;
+    private final int enemies;
+    private final Set<Integer> dumpFrames = new HashSet<>();
+    private final File dumpDirectory;
+    private final String timingsFile;
+    private final String[] layouts;
+    private final boolean outdoor;
+    private final String motion;
+
+    // Everything is configured through system properties, e.g.
+    // java -Dpotato.headless.frames=600 -Dpotato.headless.dumpFrames=0,300 potato.Game --headless
+    public HeadlessRunner() {
+        this.width = Integer.getInteger("potato.headless.width", Game.WIDTH);
+        this.height = Integer.getInteger("potato.headless.height", Game.HEIGHT);
+        this.frames = Math.max(1, Integer.getInteger("potato.headless.frames", 600));
+        this.warmupFrames = Integer.getInteger("potato.headless.warmup", 60);
+        this.seed = Long.getLong("potato.headless.seed", 123);
+        this.enemies = Integer.getInteger("potato.headless.enemies", 16);
+        this.outdoor = Boolean.getBoolean("potato.headless.outdoor");
+        this.motion = System.getProperty("potato.headless.motion", "walk");
+        this.dumpDirectory = new File(System.getProperty("potato.headless.dumpDir", "."));
+        this.timingsFile = System.getProperty("potato.headless.timings");
+        // "row", "column" or both, e.g. row,column to compare the framebuffer layouts in one run
+        this.layouts = System.getProperty("potato.headless.layouts", Game.COLUMN_MAJOR ? "column" : "row").split(",");
+        String dump = System.getProperty("potato.headless.dumpFrames", "");
+        for (String frame : dump.split(",")) {
+            if (!frame.trim().isEmpty()) {
+                dumpFrames.add(Integer.parseInt(frame.trim()));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        new HeadlessRunner().run();
+    }
+
+    public void run() throws IOException {
+        if (!dumpFrames.isEmpty() && !dumpDirectory.isDirectory() && !dumpDirectory.mkdirs()) {
+            throw new IOException("Could not create the dump directory " + dumpDirectory.getPath());
+        }
+        Game.player = new Player(1.5, 1.5, 0);
+        Game.loadTextures();
+        Game.setPaused(false);
+        Renderer.PROFILER.setEnabled(Boolean.getBoolean("potato.headless.profile"));
+
+        // No canvas: the renderer presents to an offscreen buffer
+        Renderer renderer = new Renderer(width, height, null, Game.player, Game.RENDER_THREADS);
+        renderer.setRenderScale(Game.RENDER_SCALE);
+        Game.renderer = renderer;
+
+        Map map = outdoor ? new OutdoorMap(32, 32, seed) : new Map(32, 32, seed);
+        renderer.setMap(map);
+        for (int i = 0; i < enemies; i++) {
+            int[] spawn = map.getRandomFreeCoordinate();
+            if (spawn != null) {
+                renderer.entities.add(new ShroomEnemy(spawn[0] + 0.5, spawn[1] + 0.5));
+            }
+        }
+        int[] start = map.getRandomFreeCoordinate();
+        if (start == null) {
+            throw new IllegalStateException("Map seed " + seed + " has no free cell to start the camera script from");
+        }
+
+        for (String layout : layouts) {
+            layout = layout.trim();
+            renderer.setColumnMajor(layout.equals("column"));
+
+            // The warm-up replays the start of the script so the measured frames are always the same poses
+            CameraScript script = new CameraScript(map, start[0] + 0.5, start[1] + 0.5, 0);
+            script.setMotion(motion);
+            for (int frame = 0; frame < warmupFrames; frame++) {
+                script.step(Game.player);
+                renderer.render();
+            }
+            script = new CameraScript(map, start[0] + 0.5, start[1] + 0.5, 0);
+            script.setMotion(motion);
+            int reused = renderer.getReusedFrames();
+            int reprojected = renderer.getReprojectedFrames();
+
+            long[] frameNanos = new long[frames];
+            for (int frame = 0; frame < frames; frame++) {
+                script.step(Game.player);
+                long frameStart = System.nanoTime();
+                Renderer.PROFILER.beginFrame();
+                renderer.render();
+                frameNanos[frame] = System.nanoTime() - frameStart;
+
+                if (dumpFrames.contains(frame)) {
+                    dumpFrame(renderer, layout, frame);
+                }
+            }
+
+            report(layout, frameNanos);
+            if (renderer.isTemporalReuse()) {
+                System.out.printf("temporal reuse: %d frames copied, %d reprojected%n",
+                        renderer.getReusedFrames() - reused, renderer.getReprojectedFrames() - reprojected);
+            }
+        }
+        renderer.cleanup();
+    }
+
+    private void dumpFrame(Renderer renderer, String layout, int frame) throws IOException {
+        String suffix = layouts.length > 1 ? "-" + layout : "";
+        File file = new File(dumpDirectory, "frame-" + frame + suffix + ".png");
+        ImageIO.write(renderer.getFrame(), "png", file);
+        System.out.println("Frame " + frame + " crc " + Long.toHexString(checksum(renderer.getPixels())) + " -> " + file.getPath());
+    }
+
+    // Checksum of the raw framebuffer, to compare frames between builds without looking at PNGs
+    static long checksum(int[] pixels) {
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[pixels.length * 3];
+        for (int i = 0; i < pixels.length; i++) {
+            bytes[i * 3] = (byte) (pixels[i] >> 16);
+            bytes[i * 3 + 1] = (byte) (pixels[i] >> 8);
+            bytes[i * 3 + 2] = (byte) pixels[i];
+        }
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private void report(String layout, long[] frameNanos) throws IOException {
+        long[] sorted = frameNanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : frameNanos) {
+            total += nanos;
+        }
+        double average = total / 1e6 / frameNanos.length;
+        System.out.printf("%dx%d, %d frames, %d threads, render scale %.2f, %s-major, %s kernels%s%n",
+                width, height, frameNanos.length, Game.RENDER_THREADS, Game.renderer.getRenderScale(), layout,
+                Game.renderer.getPixelKernels().getName(), Game.PALETTIZED ? ", palettized" : "");
+        System.out.printf("avg %.3f ms (%.1f fps), min %.3f, p50 %.3f, p95 %.3f, p99 %.3f, max %.3f ms%n",
+                average, 1000 / average,
+                sorted[0] / 1e6, percentile(sorted, 0.50), percentile(sorted, 0.95),
+                percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+
+        if (timingsFile != null) {
+            String file = layouts.length > 1 ? timingsFile.replaceFirst("(\\.csv)?$", "-" + layout + "$1") : timingsFile;
+            try (PrintWriter writer = new PrintWriter(file)) {
+                writer.println("frame,ms");
+                for (int frame = 0; frame < frameNanos.length; frame++) {
+                    writer.println(frame + "," + frameNanos[frame] / 1e6);
+                }
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
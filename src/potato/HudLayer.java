@@ -0,0 +1,109 @@
+package potato;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+public class HudLayer {
+    private static final int TOTAL_HEARTS = 10;
+
+    private final int width;
+    private final int height;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private boolean dirty = true;
+    private double health = Double.NaN;
+    private Weapon weapon;
+    private int ammo;
+
+    // The layer covers the HUD strip below the game view and is opaque, so it can be copied over the frame row by row
+    public HudLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.image = new BufferedImage(width, Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    public void invalidate() {
+        dirty = true;
+    }
+
+    // Redraws the cached layer only when health, the weapon or its ammo changed since the last frame
+    public void update(Player player) {
+        Weapon currentWeapon = player.getWeapon();
+        int currentAmmo = currentWeapon == null ? 0 : currentWeapon.getAmmo();
+        if (!dirty && player.getHealth() == health && currentWeapon == weapon && currentAmmo == ammo) {
+            return;
+        }
+        health = player.getHealth();
+        weapon = currentWeapon;
+        ammo = currentAmmo;
+        dirty = false;
+
+        if (weapon == null) {
+            Renderer.GUN_NAME_TEXT.setText("Unarmed");
+            Renderer.GUN_AMMO_TEXT.setText("");
+        } else {
+            Renderer.GUN_NAME_TEXT.setText(weapon.getName());
+            Renderer.GUN_AMMO_TEXT.setNumber(ammo);
+        }
+
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width, height);
+        drawHealth(g);
+        drawWeaponIcon(g);
+        g.dispose();
+    }
+
+    private void drawHealth(Graphics2D g) {
+        BufferedImage fullHeart = Game.hudTextures.getTile(1);
+        BufferedImage halfHeart = Game.hudTextures.getTile(2);
+        BufferedImage emptyHeart = Game.hudTextures.getTile(3);
+
+        int fullHearts = (int) (health / 10.0);
+        int halfHearts = (health % 10.0 >= 5.0) ? 1 : 0;
+        int emptyHearts = TOTAL_HEARTS - fullHearts - halfHearts;
+
+        int heartWidth = fullHeart.getWidth();
+        int startX = 10;
+        int startY = 10;
+
+        for (int i = 0; i < fullHearts; i++) {
+            g.drawImage(fullHeart, startX + i * heartWidth, startY, null);
+        }
+        if (halfHearts == 1) {
+            g.drawImage(halfHeart, startX + fullHearts * heartWidth, startY, null);
+        }
+        for (int i = 0; i < emptyHearts; i++) {
+            g.drawImage(emptyHeart, startX + (fullHearts + halfHearts + i) * heartWidth, startY, null);
+        }
+    }
+
+    private void drawWeaponIcon(Graphics2D g) {
+        int weaponIconX = 10;
+        int weaponIconY = 40;
+        if (weapon != null) {
+            g.drawImage(weapon.getGunSprite().getIconSprite(), weaponIconX, weaponIconY, null);
+        }
+        Renderer.GUN_NAME_TEXT.draw(pixels, width, height, weaponIconX + 40, weaponIconY);
+        Renderer.GUN_AMMO_TEXT.draw(pixels, width, height, weaponIconX + 40, weaponIconY + 15);
+    }
+
+    // Copies the layer into the frame starting at row offsetY, one array copy per row
+    public void blit(int[] target, int targetWidth, int offsetY) {
+        int rows = Math.min(height, target.length / targetWidth - offsetY);
+        int columns = Math.min(width, targetWidth);
+        for (int y = 0; y < rows; y++) {
+            System.arraycopy(pixels, y * width, target, (offsetY + y) * targetWidth, columns);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,36 @@
+package potato;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class ImagePresenter implements Presenter {
+    private final Component canvas;
+
+    // Plain AWT drawing, works everywhere but nothing is accelerated
+    public ImagePresenter(Component canvas) {
+        this.canvas = canvas;
+    }
+
+    @Override
+    public String getName() {
+        return "image";
+    }
+
+    @Override
+    public void present(BufferedImage frame) {
+        Graphics g = canvas.getGraphics();
+        if (g == null) {
+            return; // Not displayable yet
+        }
+        g.drawImage(frame, 0, 0, null);
+        g.dispose();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
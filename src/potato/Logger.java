@@ -18,7 +18,9 @@ public class Logger {
     private void logInternal(String msg) {
         String logMessage = this.className + this.prefix + msg;
         System.out.println(logMessage);
-        logs.add(logMessage);
+        synchronized (logs) {
+            logs.add(logMessage);
+        }
     }
 
     public void log(String msg) {
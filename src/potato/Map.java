@@ -1,10 +1,18 @@
 package potato;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import java.util.Random;
 
 public class Map {
     public static final int[] wallTextureIDs = {31};
+    // Packed cells keep the tile ID in the low 16 bits and the tile type flags above it
+    public static final int TILE_MASK = 0xFFFF;
+    public static final int FLAG_SOLID = 1 << 16;
+    public static final int FLAG_TRANSPARENT = 1 << 17;
+    public static final int FLAG_DOOR = 1 << 18;
+    public static final int FLAG_SPAWNABLE = 1 << 19;
+    private static final int DEFAULT_TILE_TYPES = 256;
     protected int width;
     protected int height;
     protected Random random;
@@ -12,8 +20,14 @@ public class Map {
     private int minRoomSize;
     private int maxRoomSize;
     protected int[][] map;
+    private int[] tileFlags;
+    private int[] cells;
+    private int stride;
+    private int revision;
     protected BufferedImage floorImage;
     protected BufferedImage ceilingImage;
+    protected ShadeTable shadeTable = ShadeTable.DEFAULT;
+    protected CeilingMode ceilingMode = CeilingMode.TEXTURED;
 
     public Map(int width, int height, long seed) {
         this(width, height, seed, 5, 15);
@@ -30,6 +44,8 @@ public class Map {
         this.maxRoomSize = 15;
         //this.ceilingImage = Game.textures.getTile(13);
         //this.floorImage = Game.textures.getTile(17);
+        this.tileFlags = createDefaultTileFlags();
+        rebuildCells();
     }
 
     public Map(int width, int height, long seed, int minRoomSize, int maxRoomSize) {
@@ -41,7 +57,77 @@ public class Map {
         this.logger = new Logger(this.getClass().getName());
         //this.ceilingImage = Game.textures.getTile(13);
         //this.floorImage = Game.textures.getTile(17);
+        this.tileFlags = createDefaultTileFlags();
         generateMap();
+        rebuildCells();
+    }
+
+    private static int[] createDefaultTileFlags() {
+        int[] flags = new int[DEFAULT_TILE_TYPES];
+        flags[0] = FLAG_TRANSPARENT | FLAG_SPAWNABLE;
+        for (int id = 1; id < flags.length; id++) {
+            flags[id] = FLAG_SOLID;
+        }
+        return flags;
+    }
+
+    public int getTileFlags(int tileID) {
+        if (tileID < 0) {
+            return FLAG_SOLID;
+        }
+        return tileID < tileFlags.length ? tileFlags[tileID] : FLAG_SOLID;
+    }
+
+    public void setTileFlags(int tileID, int flags) {
+        if (tileID < 0 || tileID > TILE_MASK) {
+            logger.log("Attempt to set flags for invalid tile ID " + tileID);
+            return;
+        }
+        if (tileID >= tileFlags.length) {
+            int[] grown = new int[tileID + 1];
+            System.arraycopy(tileFlags, 0, grown, 0, tileFlags.length);
+            for (int id = tileFlags.length; id < grown.length; id++) {
+                grown[id] = FLAG_SOLID;
+            }
+            tileFlags = grown;
+        }
+        tileFlags[tileID] = flags & ~TILE_MASK;
+        rebuildCells();
+    }
+
+    // Packs the tile grid into a flat array surrounded by a one-tile solid border,
+    // so ray traversal that starts inside the map always stops before leaving the array
+    protected void rebuildCells() {
+        stride = width + 2;
+        cells = new int[stride * (height + 2)];
+        Arrays.fill(cells, FLAG_SOLID);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                cells[cellIndex(x, y)] = packCell(map[y][x]);
+            }
+        }
+        revision++;
+    }
+
+    // Bumped on every tile change, so caches built from the map know when to rebuild
+    public int getRevision() {
+        return revision;
+    }
+
+    private int packCell(int tileID) {
+        return (tileID & TILE_MASK) | getTileFlags(tileID);
+    }
+
+    public int cellIndex(int x, int y) {
+        return (y + 1) * stride + x + 1;
+    }
+
+    public int[] getCells() {
+        return cells;
+    }
+
+    public int getStride() {
+        return stride;
     }
 
     public BufferedImage getCeilingImage() {
@@ -52,6 +138,22 @@ public class Map {
         return floorImage;
     }
 
+    public ShadeTable getShadeTable() {
+        return shadeTable;
+    }
+
+    public CeilingMode getCeilingMode() {
+        return ceilingMode;
+    }
+
+    public void setCeilingMode(CeilingMode ceilingMode) {
+        this.ceilingMode = ceilingMode;
+    }
+
+    public void setShadeTable(ShadeTable shadeTable) {
+        this.shadeTable = shadeTable;
+    }
+
     private int getWallTextureID() {
         return wallTextureIDs[random.nextInt(wallTextureIDs.length)];
     }
@@ -85,7 +187,7 @@ public class Map {
                 logger.log("Max attempts reached while trying to find a free coordinate.");
                 return null; // Return null if no free space is found
             }
-        } while (map[y][x] != 0); // Keep trying until a free space is found
+        } while ((cells[cellIndex(x, y)] & FLAG_SPAWNABLE) == 0); // Keep trying until a free space is found
 
         return new int[]{x, y}; // Return the found coordinates
     }
@@ -137,11 +239,10 @@ public class Map {
     }
 
     public boolean isWall(int x, int y) {
-        if (x < 0 || x >= width || y < 0 || y >= height) {
-            logger.log("Out of bounds wall check: " + x + "," + y);
+        if (x < -1 || x > width || y < -1 || y > height) {
             return true; // Treat out of bounds as walls
         }
-        return map[y][x] != 0;
+        return (cells[cellIndex(x, y)] & FLAG_SOLID) != 0;
     }
 
     public BufferedImage getTexture(int x, int y) {
@@ -179,12 +280,14 @@ public class Map {
         if (x < 0 || x >= width || y < 0 || y >= height) {
             return -1; // Invalid tile
         }
-        return map[y][x];
+        return cells[cellIndex(x, y)] & TILE_MASK;
     }
 
     public void setTile(int x, int y, int tileID) {
         if (x >= 0 && x < width && y >= 0 && y < height) {
             map[y][x] = tileID;
+            cells[cellIndex(x, y)] = packCell(tileID);
+            revision++;
         } else {
             logger.log("Attempt to set tile out of bounds: " + x + "," + y);
         }
@@ -196,5 +299,8 @@ public class Map {
 
     public void setMapData(int[][] mapData) {
         this.map = mapData;
+        this.height = mapData.length;
+        this.width = mapData[0].length;
+        rebuildCells();
     }
 }
\ No newline at end of file
@@ -3,8 +3,11 @@ package potato;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 public class MiniMapRenderer {
     private final Map map;
@@ -12,6 +15,16 @@ public class MiniMapRenderer {
     private final int tileWidth;
     private final int tileHeight;
     private final Logger logger;
+    private static final int FLOOR_COLOR = 0xFFFFFFFF;
+    private static final int WALL_COLOR = 0xFF000000;
+    private static final int PLAYER_COLOR = 0xFFFF0000;
+    private static final int ENTITY_COLOR = 0xFFFFC800;
+    private static final int BORDER_COLOR = 0xFFFFFFFF;
+    private int[] tileLayer;
+    private int layerWidth;
+    private int layerHeight;
+    private int layerScale;
+    private int layerRevision;
 
     public MiniMapRenderer(Map map, Textures textures) {
         this.map = map;
@@ -55,45 +68,141 @@ public class MiniMapRenderer {
         return renderedMap;
     }
 
+    // Full minimap image, tiles plus player marker. Mostly useful for saving; the HUD uses drawMiniMap
     public BufferedImage renderMiniMap(int scale, Player player) {
-        int mapWidth = map.getWidth();
-        int mapHeight = map.getHeight();
-        BufferedImage miniMap = new BufferedImage(
-                mapWidth * scale,
-                mapHeight * scale,
-                BufferedImage.TYPE_INT_ARGB
-        );
-
-        Graphics2D g2d = miniMap.createGraphics();
+        int[] tiles = getTileLayer(scale);
+        BufferedImage miniMap = new BufferedImage(layerWidth, layerHeight, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) miniMap.getRaster().getDataBuffer()).getData();
+        System.arraycopy(tiles, 0, pixels, 0, tiles.length);
+        drawPlayer(pixels, layerWidth, 0, 0, layerWidth, layerHeight, scale, player, 0, 0);
+        return miniMap;
+    }
 
-        // Draw map tiles
-        for (int y = 0; y < mapHeight; y++) {
-            for (int x = 0; x < mapWidth; x++) {
-                int tileID = map.getTileID(x, y);
+    // Blits the size x size window around the player from the cached tile layer and draws the
+    // markers on top, so the cost depends on the window size and not on the map size
+    public void drawMiniMap(int[] target, int targetWidth, int targetHeight, int x, int y, int size, int scale,
+                            Player player, List<SpriteEntity> entities) {
+        int[] tiles = getTileLayer(scale);
+
+        int playerMiniMapX = (int) (player.getX() * scale);
+        int playerMiniMapY = (int) (player.getY() * scale);
+        int startX = Math.max(0, playerMiniMapX - size / 2);
+        int startY = Math.max(0, playerMiniMapY - size / 2);
+        // Clipped to the map edges and to the frame
+        int visibleWidth = Math.min(Math.min(layerWidth, startX + size) - startX, targetWidth - x);
+        int visibleHeight = Math.min(Math.min(layerHeight, startY + size) - startY, targetHeight - y);
+
+        for (int row = 0; row < visibleHeight; row++) {
+            System.arraycopy(tiles, (startY + row) * layerWidth + startX, target, (y + row) * targetWidth + x, visibleWidth);
+        }
 
-                if (tileID == 0) {
-                    g2d.setColor(Color.WHITE);
-                } else {
-                    g2d.setColor(Color.BLACK);
+        int dotSize = Math.max(1, scale / 2);
+        for (int i = 0; i < entities.size(); i++) {
+            SpriteEntity entity = entities.get(i);
+            if (!entity.active) {
+                continue;
+            }
+            int dotX = (int) (entity.getX() * scale) - startX - dotSize / 2;
+            int dotY = (int) (entity.getY() * scale) - startY - dotSize / 2;
+            for (int dy = 0; dy < dotSize; dy++) {
+                for (int dx = 0; dx < dotSize; dx++) {
+                    plot(target, targetWidth, x, y, visibleWidth, visibleHeight, dotX + dx, dotY + dy, ENTITY_COLOR);
                 }
+            }
+        }
+        drawPlayer(target, targetWidth, x, y, visibleWidth, visibleHeight, scale, player, startX, startY);
+        drawBorder(target, targetWidth, targetHeight, x, y, size);
+    }
 
-                g2d.fillRect(x * scale, y * scale, scale, scale);
+    // Tiles only change through Map.setTile/setMapData, so the layer is rebuilt when the map revision moves
+    private int[] getTileLayer(int scale) {
+        if (tileLayer != null && layerScale == scale && layerRevision == map.getRevision()) {
+            return tileLayer;
+        }
+        int mapWidth = map.getWidth();
+        int mapHeight = map.getHeight();
+        layerWidth = mapWidth * scale;
+        layerHeight = mapHeight * scale;
+        if (tileLayer == null || tileLayer.length != layerWidth * layerHeight) {
+            tileLayer = new int[layerWidth * layerHeight];
+        }
+        int[] cells = map.getCells();
+        for (int tileY = 0; tileY < mapHeight; tileY++) {
+            int rowStart = tileY * scale * layerWidth;
+            for (int tileX = 0; tileX < mapWidth; tileX++) {
+                int tileID = cells[map.cellIndex(tileX, tileY)] & Map.TILE_MASK;
+                Arrays.fill(tileLayer, rowStart + tileX * scale, rowStart + (tileX + 1) * scale, tileID == 0 ? FLOOR_COLOR : WALL_COLOR);
+            }
+            for (int row = 1; row < scale; row++) {
+                System.arraycopy(tileLayer, rowStart, tileLayer, rowStart + row * layerWidth, layerWidth);
             }
         }
+        layerScale = scale;
+        layerRevision = map.getRevision();
+        return tileLayer;
+    }
 
-        // Draw player
-        int playerX = (int) (player.getX() * scale);
-        int playerY = (int) (player.getY() * scale);
-        g2d.setColor(Color.RED);
-        g2d.fillOval(playerX - scale/2, playerY - scale/2, scale, scale);
+    private void drawPlayer(int[] target, int targetWidth, int x, int y, int clipWidth, int clipHeight,
+                            int scale, Player player, int startX, int startY) {
+        int playerX = (int) (player.getX() * scale) - startX;
+        int playerY = (int) (player.getY() * scale) - startY;
+
+        // Filled circle of diameter scale, centred on the player
+        int left = playerX - scale / 2;
+        int top = playerY - scale / 2;
+        double radius = scale / 2.0;
+        for (int dy = 0; dy < scale; dy++) {
+            for (int dx = 0; dx < scale; dx++) {
+                double offsetX = dx + 0.5 - radius;
+                double offsetY = dy + 0.5 - radius;
+                if (offsetX * offsetX + offsetY * offsetY <= radius * radius) {
+                    plot(target, targetWidth, x, y, clipWidth, clipHeight, left + dx, top + dy, PLAYER_COLOR);
+                }
+            }
+        }
+
+        // Direction line
+        int endX = playerX + (int) (Math.cos(player.getAngle()) * scale * 2);
+        int endY = playerY + (int) (Math.sin(player.getAngle()) * scale * 2);
+        int stepX = Integer.signum(endX - playerX);
+        int stepY = Integer.signum(endY - playerY);
+        int distanceX = Math.abs(endX - playerX);
+        int distanceY = -Math.abs(endY - playerY);
+        int error = distanceX + distanceY;
+        int px = playerX;
+        int py = playerY;
+        while (true) {
+            plot(target, targetWidth, x, y, clipWidth, clipHeight, px, py, PLAYER_COLOR);
+            if (px == endX && py == endY) {
+                break;
+            }
+            int doubled = 2 * error;
+            if (doubled >= distanceY) {
+                error += distanceY;
+                px += stepX;
+            }
+            if (doubled <= distanceX) {
+                error += distanceX;
+                py += stepY;
+            }
+        }
+    }
 
-        // Draw player direction
-        int dirX = playerX + (int) (Math.cos(player.getAngle()) * scale * 2);
-        int dirY = playerY + (int) (Math.sin(player.getAngle()) * scale * 2);
-        g2d.drawLine(playerX, playerY, dirX, dirY);
+    private static void plot(int[] target, int targetWidth, int x, int y, int clipWidth, int clipHeight,
+                             int px, int py, int color) {
+        if (px >= 0 && px < clipWidth && py >= 0 && py < clipHeight) {
+            target[(y + py) * targetWidth + x + px] = color;
+        }
+    }
 
-        g2d.dispose();
-        return miniMap;
+    // Same outline as Graphics.drawRect(x, y, size, size), clipped to the frame
+    private static void drawBorder(int[] target, int targetWidth, int targetHeight, int x, int y, int size) {
+        for (int i = 0; i <= size; i++) {
+            plot(target, targetWidth, 0, 0, targetWidth, targetHeight, x + i, y, BORDER_COLOR);
+            plot(target, targetWidth, 0, 0, targetWidth, targetHeight, x + i, y + size, BORDER_COLOR);
+            plot(target, targetWidth, 0, 0, targetWidth, targetHeight, x, y + i, BORDER_COLOR);
+            plot(target, targetWidth, 0, 0, targetWidth, targetHeight, x + size, y + i, BORDER_COLOR);
+        }
     }
 
     public void saveMapAsImage(String filePath, String format) {
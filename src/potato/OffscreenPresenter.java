@@ -0,0 +1,30 @@
+package potato;
+
+import java.awt.image.BufferedImage;
+
+public class OffscreenPresenter implements Presenter {
+    private long presentedFrames;
+
+    // Used when there is no window; the frame stays in the renderer's buffer
+    @Override
+    public String getName() {
+        return "offscreen";
+    }
+
+    @Override
+    public void present(BufferedImage frame) {
+        presentedFrames++;
+    }
+
+    public long getPresentedFrames() {
+        return presentedFrames;
+    }
+
+    @Override
+    public void resize(int width, int height) {
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
@@ -4,9 +4,14 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 
 public class OutdoorMap extends Map {
+    // Open areas fade out exponentially into the dark blue at the bottom of the sky gradient
+    private static final ShadeTable OUTDOOR_SHADES = new ShadeTable(32, Renderer.MAX_DISTANCE, t -> Math.exp(-3.0 * t), 0x00008B);
+
     public OutdoorMap(int width, int height, long seed) {
         super(width, height, seed);
         this.ceilingImage = createSkyGradient(32, 32);
+        this.shadeTable = OUTDOOR_SHADES;
+        this.ceilingMode = CeilingMode.SKY;
     }
 
     public static BufferedImage createSkyGradient(int width, int height) {
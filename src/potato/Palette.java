@@ -0,0 +1,133 @@
+package potato;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+public class Palette {
+    public static final int SIZE = 256;
+    public static final int TRANSPARENT = 0;
+    // The images drawn in the 3D view; the shared palette is built from their most used colors
+    private static final String[] SOURCES = {
+            "/potato/sprites/textures.png",
+            "/potato/sprites/entity/shroom.png",
+            "/potato/sprites/entity/gunshell.png",
+            "/potato/sprites/gun/boolet.png"
+    };
+    private static Palette shared;
+
+    private final int[] colors = new int[SIZE];
+    private final int colorCount;
+    private final HashMap<Integer, Integer> lookup = new HashMap<>();
+
+    // Index 0 is reserved for transparent texels; the remaining 255 entries are the most frequent
+    // opaque colors of the given images. Colors that don't make the cut map to their nearest entry
+    public Palette(List<int[]> images) {
+        HashMap<Integer, int[]> counts = new HashMap<>();
+        for (int[] pixels : images) {
+            for (int pixel : pixels) {
+                if ((pixel & 0xFF000000) != 0) {
+                    counts.computeIfAbsent(pixel & 0xFFFFFF, color -> new int[1])[0]++;
+                }
+            }
+        }
+        List<Entry<Integer, int[]>> byCount = new ArrayList<>(counts.entrySet());
+        byCount.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                ? Integer.compare(b.getValue()[0], a.getValue()[0])
+                : Integer.compare(a.getKey(), b.getKey()));
+        int count = 1;
+        for (Entry<Integer, int[]> entry : byCount) {
+            if (count == SIZE) {
+                break;
+            }
+            colors[count] = entry.getKey();
+            lookup.put(entry.getKey(), count);
+            count++;
+        }
+        this.colorCount = count;
+    }
+
+    public static synchronized Palette getShared() {
+        if (shared == null) {
+            List<int[]> images = new ArrayList<>();
+            for (String source : SOURCES) {
+                try (InputStream in = Palette.class.getResourceAsStream(source)) {
+                    BufferedImage image = in == null ? null : ImageIO.read(in);
+                    if (image != null) {
+                        images.add(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()));
+                    }
+                } catch (IOException e) {
+                    System.err.println("Palette source " + source + " unavailable: " + e.getMessage());
+                }
+            }
+            shared = new Palette(images);
+        }
+        return shared;
+    }
+
+    // Texture sheets are quantized when they first load, which can happen on different threads
+    public synchronized int indexOf(int argb) {
+        if ((argb & 0xFF000000) == 0) {
+            return TRANSPARENT;
+        }
+        int rgb = argb & 0xFFFFFF;
+        Integer index = lookup.get(rgb);
+        if (index == null) {
+            index = nearest(rgb);
+            lookup.put(rgb, index);
+        }
+        return index;
+    }
+
+    private int nearest(int rgb) {
+        int r = rgb >> 16 & 0xFF;
+        int g = rgb >> 8 & 0xFF;
+        int b = rgb & 0xFF;
+        int best = 1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 1; i < colorCount; i++) {
+            int dr = (colors[i] >> 16 & 0xFF) - r;
+            int dg = (colors[i] >> 8 & 0xFF) - g;
+            int db = (colors[i] & 0xFF) - b;
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public byte[] quantize(int[] pixels) {
+        byte[] indices = new byte[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            indices[i] = (byte) indexOf(pixels[i]);
+        }
+        return indices;
+    }
+
+    // colormap[level << 8 | index] is palette color index shaded to the given level, so shading an indexed
+    // texel is a single lookup
+    public int[] buildColormap(ShadeTable table) {
+        int[] colormap = new int[table.getLevelCount() * SIZE];
+        for (int level = 0; level < table.getLevelCount(); level++) {
+            for (int index = 1; index < colorCount; index++) {
+                colormap[level * SIZE + index] = table.shade(colors[index], level);
+            }
+        }
+        return colormap;
+    }
+
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    public int getColorCount() {
+        return colorCount;
+    }
+}
@@ -9,6 +9,8 @@ public class PauseMenu {
     private final int width;
     private final int height;
     private final List<String> menuItems;
+    private final List<GlyphText> menuTexts;
+    private final GlyphText pauseText = new GlyphText("PAUSE", 3);
     private int selectedIndex;
     //private final Color overlayColor = new Color(255, 255, 255, 128);
     private final Color menuBackgroundColor = new Color(0, 0, 139, 220);
@@ -27,6 +29,11 @@ public class PauseMenu {
         menuItems.add("Resume");
         menuItems.add("Options");
         menuItems.add("Quit Game");
+
+        this.menuTexts = new ArrayList<>();
+        for (String item : menuItems) {
+            menuTexts.add(new GlyphText(item, 2).setTextColor(textColor));
+        }
     }
 
     public void draw(Graphics2D g, BufferedImage lastRenderedFrame) {
@@ -49,8 +56,7 @@ public class PauseMenu {
         // Draw menu items
         int currentY = menuY + menuPadding;
         for (int i = 0; i < menuItems.size(); i++) {
-            String item = menuItems.get(i);
-            GlyphText itemText = new GlyphText(item, 2);
+            GlyphText itemText = menuTexts.get(i);
             int textWidth = itemText.getWidth();
             int textX = menuX + (menuWidth - textWidth) / 2;
 
@@ -59,14 +65,11 @@ public class PauseMenu {
                 g.fillRect(menuX + 5, currentY - 5, menuWidth - 10, menuItemHeight + 10);
             }
 
-            itemText.setTextColor(textColor);
             itemText.draw(g, textX, currentY);
             currentY += menuItemHeight + menuItemSpacing;
         }
 
         // Draw "PAUSE" text at the top
-        GlyphText pauseText = new GlyphText("PAUSE", 3);
-        pauseText.setTextColor(Color.WHITE);
         pauseText.draw(g, (width - pauseText.getWidth()) / 2, menuY - 30);
     }
 
@@ -0,0 +1,27 @@
+package potato;
+
+// Per-pixel span kernels of the renderer. Every implementation must produce exactly the same pixels as
+// ScalarPixelKernels, so switching backends never changes a frame
+public interface PixelKernels {
+    String getName();
+
+    void fill(int[] pixels, int from, int to, int color);
+
+    // pixels[i] = table.shade(pixels[i], level) for i in [from, to)
+    void shade(int[] pixels, int from, int to, ShadeTable table, int level);
+
+    // "scalar", "vector" or "auto". The vector kernels live in a separate source root built with
+    // JDK 16+ and need --add-modules jdk.incubator.vector at runtime, so they are only looked up by name
+    static PixelKernels create(String name) {
+        if (!name.equals("scalar")) {
+            try {
+                return (PixelKernels) Class.forName("potato.VectorPixelKernels").getDeclaredConstructor().newInstance();
+            } catch (Exception | LinkageError e) {
+                if (name.equals("vector")) {
+                    System.err.println("Vector pixel kernels unavailable: " + e);
+                }
+            }
+        }
+        return new ScalarPixelKernels();
+    }
+}
@@ -0,0 +1,15 @@
+package potato;
+
+import java.awt.image.BufferedImage;
+
+public interface Presenter {
+    String getName();
+
+    // Puts the finished frame on screen
+    void present(BufferedImage frame);
+
+    // Called after the canvas or the frame changed size
+    void resize(int width, int height);
+
+    void dispose();
+}
@@ -10,6 +10,7 @@ public class Projectile {
     private final double speed;
     private final int damage;
     private final BufferedImage sprite;
+    private final int textureID;
     private boolean active;
     private final double size;
 
@@ -19,6 +20,7 @@ public class Projectile {
         this.angle = angle;
         this.speed = speed;
         this.damage = damage;
+        this.textureID = textureID;
         this.sprite = Game.projectileTextures.getTile(textureID);
         this.active = true;
         this.size = 0.75;
@@ -94,6 +96,10 @@ public class Projectile {
         return sprite;
     }
 
+    public int getTextureID() {
+        return textureID;
+    }
+
     public int getDamage() {
         return damage;
     }
@@ -0,0 +1,103 @@
+package potato;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+public class RenderWorkers {
+    private final Logger logger = new Logger(this.getClass().getName());
+    private final int threadCount;
+    private final Thread[] threads;
+    private final CyclicBarrier startBarrier;
+    private final CyclicBarrier doneBarrier;
+    private volatile boolean running = true;
+    private StripTask task;
+    private int columns;
+    private RuntimeException failure;
+
+    public RenderWorkers(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+        this.threads = new Thread[this.threadCount - 1];
+        // The calling thread always renders strip 0, so only threadCount - 1 helpers are started
+        this.startBarrier = new CyclicBarrier(this.threadCount);
+        this.doneBarrier = new CyclicBarrier(this.threadCount);
+        for (int i = 0; i < threads.length; i++) {
+            final int worker = i + 1;
+            threads[i] = new Thread(() -> workerLoop(worker), "potato-render-" + worker);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        logger.log("Started with " + this.threadCount + " render thread(s)");
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    // Splits [0, columns) into one strip per worker and blocks until every strip is done
+    public void run(int columns, StripTask task) {
+        if (threadCount == 1) {
+            task.run(0, 0, columns);
+            return;
+        }
+        this.task = task;
+        this.columns = columns;
+        this.failure = null;
+        await(startBarrier);
+        runStrip(0);
+        await(doneBarrier);
+        this.task = null;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+
+    private void workerLoop(int worker) {
+        while (running) {
+            try {
+                startBarrier.await();
+                runStrip(worker);
+                doneBarrier.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                return;
+            }
+        }
+    }
+
+    private void runStrip(int worker) {
+        int startX = (int) ((long) columns * worker / threadCount);
+        int endX = (int) ((long) columns * (worker + 1) / threadCount);
+        if (startX >= endX) {
+            return;
+        }
+        try {
+            task.run(worker, startX, endX);
+        } catch (RuntimeException e) {
+            logger.error(e);
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    private void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            throw new IllegalStateException("Render workers stopped", e);
+        }
+    }
+
+    public interface StripTask {
+        void run(int worker, int startX, int endX);
+    }
+}
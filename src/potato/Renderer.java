@@ -2,20 +2,16 @@ package potato;
 
 import potato.modsupport.Mod;
 import potato.server.*;
-import sun.java2d.SunGraphics2D;
-import sun.java2d.SurfaceData;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
-import java.awt.peer.ComponentPeer;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.lang.reflect.Method;
 import java.net.Socket;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -30,6 +26,7 @@ public class Renderer {
     public static final GlyphText GUN_NAME_TEXT = new GlyphText("", 2);
     public static final GlyphText GUN_AMMO_TEXT = new GlyphText("", 2);
     public static final GlyphText FPS_TEXT = new GlyphText("", 2).setTextColor(Color.YELLOW).setBackgroundColor(Color.DARK_GRAY);
+    public static final FrameProfiler PROFILER = new FrameProfiler();
     private static final double WALL_HEIGHT = 1.0;
     private static final double EPSILON = 1e-4;
     private static final double WEAPON_BOB_SPEED = 4.0;
@@ -44,39 +41,125 @@ public class Renderer {
     private int hudHeight;
     private BufferedImage lastRenderedFrame;
 
-    private Map map;
+    private World world;
 
     public PauseMenu pauseMenu = new PauseMenu(WIDTH, HEIGHT);
 
-    private MiniMapRenderer miniMapRenderer;
+    private static final String[] PRESENTERS = {"bufferstrategy", "surface", "image"};
+    private static final int PRESENTER_TRIAL_FRAMES = 5;
     private static final int MINIMAP_SIZE = 80; // Size of the minimap
     private static final int MINIMAP_SCALE = 5; // Scale factor for the minimap
-
-    private double[] zBuffer;
-    private SunGraphics2D fastGraphics;
-    private SurfaceData surfaceData;
+    private static final int DEPTH_BLOCK_SHIFT = 4; // Columns per wall depth block, as a power of two
+    private static final int FIXED_SHIFT = 16; // Floor and ceiling texel coordinates are 16.16 fixed point
+    private static final double FIXED_ONE = 1 << FIXED_SHIFT;
+    private static final int TRANSPOSE_BLOCK = 32; // Square tiles of the column-major to row-major copy
+    private static final int MAX_EXPOSED_FRACTION = 4; // Reprojection gives up when over 1/4 of the columns are new
+    private static final int CEILING_COLOR = Color.BLACK.getRGB();
+    private static final int FLOOR_COLOR = Color.DARK_GRAY.getRGB();
+
+    // Wall pass results, one entry per screen column; the distances double as the sprite depth buffer
+    private double[] wallDistances;
+    private double[] wallHitX;
+    private int[] wallTiles;
+    private boolean[] wallSides;
+    // Farthest wall distance in each block of columns, used to reject hidden sprites before any texel work
+    private double[] depthBlockMax;
+    private int[] spriteRowStarts = new int[0];
+    // Per view row floor/ceiling spans, see prepareSpan
+    private int[] spanU;
+    private int[] spanV;
+    private int[] spanStepU;
+    private int[] spanStepV;
+    private int[] spanShade;
+    private final SpriteBatch spriteBatch = new SpriteBatch();
+    private Presenter presenter;
     private BufferedImage buffer;
     private int[] pixels;
     private final Component canvas;
+    private final RenderWorkers workers;
+    private final RenderWorkers.StripTask wallPass = this::castRayStrip;
+    private final WeakHashMap<BufferedImage, TextureAtlas> imageAtlases = new WeakHashMap<>();
+    private TextureAtlas wallAtlas;
+    private ShadeTable shadeTable = ShadeTable.DEFAULT;
+    private final Camera camera;
+    private HudLayer hudLayer;
+    private final GlyphText loadingText = new GlyphText("", 2);
+    // The 3D view renders into viewPixels at viewWidth x viewHeight and is upscaled into the top gameHeight rows
+    // of the frame; at a render scale of 1 viewPixels is simply pixels and no upscale happens
+    private double renderScale = 1.0;
+    private boolean mipmapping = MIPMAPS;
+    private ResolutionController resolutionController;
+    private int viewWidth;
+    private int viewHeight;
+    private int[] viewPixels;
+    private int[] upscaleColumns;
+    private final RenderWorkers.StripTask upscalePass = this::upscaleRows;
+    // Optional column-major copy of the view: x * viewHeight + y. Walls, floor/ceiling and sprites are drawn
+    // down contiguous columns, then transposed into viewPixels
+    private boolean columnMajor = COLUMN_MAJOR;
+    private final PixelKernels kernels = PixelKernels.create(PIXEL_KERNELS);
+    private SkyPanorama sky;
+    private int skyStartColumn;
+    // Palettized mode: atlases carry 8-bit palette indices, shaded through colormap[level << 8 | index]
+    private final boolean palettized = PALETTIZED;
+    private Palette palette;
+    private int[] colormap;
+    private ShadeTable colormapTable;
+    // Temporal reuse: the floor and wall layer of the last fully rendered frame (the key frame) and the pose
+    // it was rendered from. Sprites, the weapon and the HUD are always drawn fresh on top
+    private boolean temporalReuse = TEMPORAL_REUSE;
+    private boolean keyFrameValid;
+    private int[] keyPixels;
+    private double[] keyDistances;
+    private double[] keyHitX;
+    private int[] keyTiles;
+    private boolean[] keySides;
+    private double keyPosX;
+    private double keyPosY;
+    private double keyDirX;
+    private double keyDirY;
+    private double keyPlaneX;
+    private double keyPlaneY;
+    private int keyRevision;
+    private World keyWorld;
+    private ShadeTable keyShadeTable;
+    private TextureAtlas keyWallAtlas;
+    // Per view column after a rotation: the key frame column showing the same ray (-1 if none), and the
+    // 16.16 key frame row of view row 0 plus the key rows per view row. Only textured floor and ceiling
+    // halves are reprojected with the walls; sky and flat fills are cheaper to draw again
+    private int[] reprojectSource;
+    private int[] reprojectStart;
+    private int[] reprojectStep;
+    private final RenderWorkers.StripTask reprojectPass = this::reprojectStrip;
+    private boolean reprojectCeiling;
+    private boolean reprojectFloor;
+    private int reusedFrames;
+    private int reprojectedFrames;
+    private int[] columnPixels;
+    private final RenderWorkers.StripTask transposePass = this::transposeStrip;
 
     public int clientId = -1; // Initialize with an invalid ID
-    private boolean mapReceived = false;
 
     public Renderer(int width, int height, Component canvas, Player player) {
+        this(width, height, canvas, player, 1);
+    }
+
+    public Renderer(int width, int height, Component canvas, Player player, int renderThreads) {
         this.width = width;
         this.height = height;
         this.gameHeight = (int) (height * 0.8);
         this.hudHeight = height - gameHeight;
-        HALF_HEIGHT = gameHeight / 2;
         this.player = player;
         this.canvas = canvas;
         this.buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         this.pixels = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
 
-        this.zBuffer = new double[width];
-        new BufferedImage(width, hudHeight, BufferedImage.TYPE_INT_ARGB);
+        this.camera = new Camera(width, gameHeight);
+        resizeView();
+        this.hudLayer = new HudLayer(width, hudHeight);
         this.isMultiplayer = false;
-        initializeFastGraphics(canvas);
+        this.workers = new RenderWorkers(renderThreads);
+        this.presenter = selectPresenter();
 
     }
 
@@ -177,19 +260,14 @@ public class Renderer {
 
     private void updateOtherPlayerPosition(PlayerPositionPacket posPacket) {
         int clientId = posPacket.getClientId();
-        SpriteEntity playerEntity = otherPlayers.computeIfAbsent(clientId, id -> new SpriteEntity(posPacket.getX(), posPacket.getY(), textures.getTile(1), 0)); // Use appropriate sprite
+        SpriteEntity playerEntity = otherPlayers.computeIfAbsent(clientId, id -> new SpriteEntity(posPacket.getX(), posPacket.getY(), textures, 1, 0)); // Use appropriate sprite
         playerEntity.setX(posPacket.getX());
         playerEntity.setY(posPacket.getY());
     }
 
-    private void renderOtherPlayers() {
-        for (SpriteEntity playerEntity : otherPlayers.values()) {
-            playerEntity.render(this, player);
-        }
-    }
-
 
     public void cleanup() {
+        workers.shutdown();
         if (isMultiplayer) {
             try {
                 socket.close();
@@ -202,11 +280,10 @@ public class Renderer {
 
     private void updateMap(MapDataPacket mapPacket) {
         int[][] mapData = mapPacket.getMapData();
-        this.map = new Map(mapData);
-        this.map.printMap();
-        this.miniMapRenderer = new MiniMapRenderer(map, textures);
+        Map map = new Map(mapData);
+        map.printMap();
+        setWorld(new World(map, textures));
         System.out.println("Map data received and initialized.");
-        this.mapReceived = true;
     }
 
     private Socket socket;
@@ -218,59 +295,6 @@ public class Renderer {
 
 
 
-    private void initializeFastGraphics(Component canvas) {
-        String os = System.getProperty("os.name").toLowerCase();
-        try {
-            if (os.contains("windows")) {
-                initializeWindowsGraphics(canvas);
-            } else if (os.contains("linux")) {
-                initializeLinuxGraphics(canvas);
-            } else {
-                initializeFallbackGraphics();
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to initialize fast graphics: " + e.getMessage());
-            initializeFallbackGraphics();
-        }
-    }
-
-    private void initializeWindowsGraphics(Component canvas) throws Exception {
-        System.out.println("Init windows graphics");
-        Class<?> peerClass = Class.forName("sun.awt.windows.WComponentPeer");
-        Class<?> surfaceDataClass = Class.forName("sun.java2d.windows.GDIWindowSurfaceData");
-        Method createDataMethod = surfaceDataClass.getMethod("createData", peerClass);
-
-        Object peer = canvas.getPeer();
-        if (peerClass.isInstance(peer)) {
-            surfaceData = (SurfaceData) createDataMethod.invoke(null, peer);
-            fastGraphics = new SunGraphics2D(surfaceData, Color.BLACK, Color.BLACK, null);
-        } else {
-            throw new RuntimeException("Unsupported peer type for Windows fast rendering");
-        }
-    }
-
-    private void initializeLinuxGraphics(Component canvas) throws Exception {
-        System.out.println("Init linux graphics");
-        Class<?> peerClass = Class.forName("sun.awt.X11ComponentPeer");
-        Class<?> surfaceDataClass = Class.forName("sun.java2d.xr.XRSurfaceData");
-        Method createDataMethod = surfaceDataClass.getMethod("createData", peerClass);
-
-        Object peer = canvas.getPeer();
-        if (peerClass.isInstance(peer)) {
-            surfaceData = (SurfaceData) createDataMethod.invoke(null, peer);
-            fastGraphics = new SunGraphics2D(surfaceData, Color.BLACK, Color.BLACK, null);
-        } else {
-            throw new RuntimeException("Unsupported peer type for Linux fast rendering");
-        }
-    }
-
-    private void initializeFallbackGraphics() {
-        System.out.println("Init fallback graphics, SLOW!");
-        BufferedImage fallbackImage = new BufferedImage(canvas.getWidth(), canvas.getHeight(), BufferedImage.TYPE_INT_RGB);
-        fastGraphics = (SunGraphics2D) fallbackImage.createGraphics();
-        surfaceData = null;
-    }
-
     public void render() {
         if (Game.isPaused())
         {
@@ -280,34 +304,60 @@ public class Renderer {
             presentBuffer(buffer);
             return;
         }
-        if (!mapReceived && isMultiplayer) {
-            renderLoadingScreen("Retrieving map data from server...");
+        if (world == null) {
+            renderLoadingScreen(isMultiplayer ? "Retrieving map data from server..." : "Loading map...");
             return;
         }
-        if (!isMultiplayer)
-        {
-            map = new Map(32, 32, 123);
-            this.miniMapRenderer = new MiniMapRenderer(map, Game.textures);
-            this.mapReceived = true;
-        }
 
+        PROFILER.begin(FrameProfiler.CLEAR);
+        beginFrame();
         clearScreen();
-        drawCeilingAndFloor();
-        castRays();
-        renderEntities();
-        if (this.isMultiplayer)
-        {
-            renderOtherPlayers();
+        PROFILER.end(FrameProfiler.CLEAR);
+        PROFILER.begin(FrameProfiler.WALLS);
+        boolean reused = reuseWorldLayer();
+        PROFILER.end(FrameProfiler.WALLS);
+        if (!reused) {
+            if (!columnMajor) {
+                // In column-major mode the wall pass fills floor and ceiling per column
+                PROFILER.begin(FrameProfiler.FLOOR);
+                drawCeilingAndFloor();
+                PROFILER.end(FrameProfiler.FLOOR);
+            }
+            PROFILER.begin(FrameProfiler.WALLS);
+            castRays();
+            storeKeyFrame();
+            PROFILER.end(FrameProfiler.WALLS);
         }
+        renderSprites();
+        PROFILER.begin(FrameProfiler.TRANSPOSE);
+        transposeView();
+        PROFILER.end(FrameProfiler.TRANSPOSE);
+        PROFILER.begin(FrameProfiler.UPSCALE);
+        upscaleView();
+        PROFILER.end(FrameProfiler.UPSCALE);
+        PROFILER.begin(FrameProfiler.WEAPON);
         renderWeapon();
-        renderProjectile();
+        PROFILER.end(FrameProfiler.WEAPON);
+        PROFILER.begin(FrameProfiler.HUD);
         renderHUD();
-        for (Mod mod : Game.MOD_LOADER.getLoadedMods()) {
-            mod.drawGame(fastGraphics);
-            mod.drawHUD(fastGraphics);
+        PROFILER.end(FrameProfiler.HUD);
+        PROFILER.begin(FrameProfiler.MODS);
+        if (!Game.MOD_LOADER.getLoadedMods().isEmpty()) {
+            Graphics2D g = buffer.createGraphics();
+            for (Mod mod : Game.MOD_LOADER.getLoadedMods()) {
+                mod.drawGame(g);
+                mod.drawHUD(g);
+            }
+            g.dispose();
         }
+        PROFILER.end(FrameProfiler.MODS);
+        // The overlay shows the previous frames; drawing it is not part of any stage
+        PROFILER.draw(pixels, width, height, 0, FPS_TEXT.getHeight() + 2);
         lastRenderedFrame = buffer;
+        PROFILER.begin(FrameProfiler.PRESENT);
         presentBuffer(buffer);
+        PROFILER.end(FrameProfiler.PRESENT);
+        PROFILER.endFrame();
     }
 
     private void renderLoadingScreen(String text)
@@ -317,7 +367,7 @@ public class Renderer {
         g.fillRect(0, 0, width, height);
 
         // Draw the loading text
-        GlyphText loadingText = new GlyphText(text, 2);
+        loadingText.setText(text);
         int textWidth = loadingText.getWidth();
         int textHeight = loadingText.getHeight();
         int textX = (width - textWidth) / 2;
@@ -343,203 +393,419 @@ public class Renderer {
     }
 
 
-    private void drawProjectile(Projectile projectile) {
-        double dx = projectile.getX() - player.getX();
-        double dy = projectile.getY() - player.getY();
-        double distance = Math.sqrt(dx * dx + dy * dy);
-
-        double angle = Math.atan2(dy, dx) - player.getAngle();
-
-        while (angle < -Math.PI) angle += 2 * Math.PI;
-        while (angle > Math.PI) angle -= 2 * Math.PI;
-
-        if (Math.abs(angle) > HALF_FOV || distance > MAX_DISTANCE) return;
+    private void renderHUD()
+    {
+        if (world == null) {return;}
+        // Health and weapon come from a cached layer that only redraws when their values change
+        hudLayer.update(player);
+        hudLayer.blit(pixels, width, gameHeight);
+        FPS_TEXT.draw(pixels, width, gameHeight, 0, 0);
+        drawMinimap();
+    }
 
-        int screenX = (int) ((angle / HALF_FOV + 1) * width / 2);
-        double size = (gameHeight / distance) * projectile.getSize();
-        int screenY = HALF_HEIGHT;
+    private void drawMinimap() {
+        int miniMapX = width - MINIMAP_SIZE - 10;
+        int miniMapY = gameHeight + 10;
+        world.getMiniMapRenderer().drawMiniMap(pixels, width, height, miniMapX, miniMapY, MINIMAP_SIZE, MINIMAP_SCALE, player, entities);
+    }
 
-        BufferedImage sprite = projectile.getSprite();
-        drawSprite(sprite, screenX, screenY, (int) size, distance, RenderTarget.GAME);
+    void drawCeilingAndFloor()
+    {
+        if (world == null) { return; }
+        drawCeiling();
+        drawFloor();
     }
 
-    private void renderProjectile() {
-        Iterator<Projectile> iterator = projectiles.iterator();
-        while (iterator.hasNext()) {
-            Projectile projectile = iterator.next();
-            if (projectile.isActive()) {
-                drawProjectile(projectile);
-            } else {
-                projectiles.remove(projectile);
+    // Untextured halves are one contiguous block each
+    private void drawCeiling() {
+        TextureAtlas ceiling = world.getCeilingTexture();
+        if (sky != null) {
+            sky.drawRows(viewPixels, viewWidth, skyStartColumn);
+        } else if (ceiling == null) {
+            kernels.fill(viewPixels, 0, HALF_HEIGHT * viewWidth, CEILING_COLOR);
+        } else {
+            for (int y = 0; y < HALF_HEIGHT; y++) {
+                drawTextureRow(ceiling, y);
             }
         }
     }
 
-    private void renderHUD()
-    {
-        if (!mapReceived) {return;}
-        Graphics2D g = buffer.createGraphics();
+    private void drawFloor() {
+        TextureAtlas floor = world.getFloorTexture();
+        if (floor == null) {
+            kernels.fill(viewPixels, HALF_HEIGHT * viewWidth, viewHeight * viewWidth, FLOOR_COLOR);
+        } else {
+            for (int y = HALF_HEIGHT; y < viewHeight; y++) {
+                drawTextureRow(floor, y);
+            }
+        }
+    }
 
-        // Draw health
-        drawHealth(g);
+    // Arbitrary sprite images (e.g. from mods) are decoded once and assumed not to change afterwards
+    private TextureAtlas atlasFor(BufferedImage image) {
+        if (image == null) {
+            return null;
+        }
+        TextureAtlas atlas = imageAtlases.get(image);
+        if (atlas == null) {
+            atlas = TextureAtlas.fromImage(image);
+            if (PALETTIZED) {
+                // These images can also be drawn onto the HUD, which needs their ARGB texels
+                atlas.quantize(Palette.getShared(), true);
+            }
+            imageAtlases.put(image, atlas);
+        }
+        return atlas;
+    }
 
-        // Draw weapon icon and info
-        drawWeaponIcon(g);
-        drawMinimap(g);
-        // Draw FPS
-        drawFPS(g);
-        g.dispose();
+    // Per-frame state the world passes read
+    void beginFrame() {
+        shadeTable = world.getShadeTable();
+        wallAtlas = textures.getAtlas();
+        if (palettized && shadeTable != colormapTable) {
+            palette = Palette.getShared();
+            colormap = palette.buildColormap(shadeTable);
+            colormapTable = shadeTable;
+        }
+        camera.update(player);
+        sky = world.getSky();
+        if (sky != null) {
+            sky.resize(viewWidth, HALF_HEIGHT);
+            skyStartColumn = sky.getStartColumn(camera.getAngle());
+        }
     }
 
-    private void drawMinimap(Graphics2D g) {
-        BufferedImage miniMap = miniMapRenderer.renderMiniMap(MINIMAP_SCALE, player);
+    // Sets up row y of a floor or ceiling: 16.16 fixed-point texel coordinates at the left edge, their step
+    // per column and the row's shade level. Plane textures are power-of-two sized (see World), so the
+    // coordinates can wrap around freely and are reduced to a texel with a mask
+    private void prepareSpan(TextureAtlas texture, int y) {
+        double rowDistance = camera.getRowDistance()[y];
+        double scaleU = texture.getTileWidth() * FIXED_ONE;
+        double scaleV = texture.getTileHeight() * FIXED_ONE;
+        double floorX = camera.getPosX() + rowDistance * (camera.getDirX() - camera.getPlaneX());
+        double floorY = camera.getPosY() + rowDistance * (camera.getDirY() - camera.getPlaneY());
+        spanU[y] = toFixed(floorX * scaleU);
+        spanV[y] = toFixed(floorY * scaleV);
+        spanStepU[y] = toFixed(rowDistance * (camera.getPlaneX() * 2) / viewWidth * scaleU);
+        spanStepV[y] = toFixed(rowDistance * (camera.getPlaneY() * 2) / viewWidth * scaleV);
+        spanShade[y] = shadeTable.getLevel(rowDistance);
+    }
 
-        int mapWidth = map.getWidth() * MINIMAP_SCALE;
-        int mapHeight = map.getHeight() * MINIMAP_SCALE;
+    // Only the low 32 bits matter, the texel lookup masks off whole tiles anyway
+    private static int toFixed(double value) {
+        return (int) (long) value;
+    }
 
-        int miniMapX = width - MINIMAP_SIZE - 10;
-        int miniMapY = gameHeight + 10;
+    private void prepareSpans() {
+        if (world == null) { return; }
+        TextureAtlas ceiling = world.getCeilingTexture();
+        TextureAtlas floor = world.getFloorTexture();
+        for (int y = 0; y < viewHeight; y++) {
+            TextureAtlas texture = y < HALF_HEIGHT ? ceiling : floor;
+            if (texture != null) {
+                prepareSpan(texture, y);
+            }
+        }
+    }
 
-        // Calculate the visible portion of the minimap
-        int playerMiniMapX = (int) (player.getX() * MINIMAP_SCALE);
-        int playerMiniMapY = (int) (player.getY() * MINIMAP_SCALE);
+    void drawTextureRow(TextureAtlas texture, int y) {
+        if (y < 0 || y >= viewHeight) return;
+        prepareSpan(texture, y);
+
+        int[] texels = texture.getPixels();
+        int texOffset = texture.getTileOffset(1);
+        int strideShift = texture.getStrideShift();
+        int maskU = texture.getTileWidth() - 1;
+        int maskV = texture.getTileHeight() - 1;
+        int u = spanU[y];
+        int v = spanV[y];
+        int stepU = spanStepU[y];
+        int stepV = spanStepV[y];
+
+        int start = y * viewWidth;
+        int end = start + viewWidth;
+        byte[] indices = palettized ? texture.getIndices(0) : null;
+        if (indices != null) {
+            int shadeBase = spanShade[y] << 8;
+            for (int i = start; i < end; i++) {
+                viewPixels[i] = colormap[shadeBase | indices[texOffset + ((v >> FIXED_SHIFT & maskV) << strideShift) + (u >> FIXED_SHIFT & maskU)] & 0xFF];
+                u += stepU;
+                v += stepV;
+            }
+            return;
+        }
+        // Gather the texels first, then shade the whole row in one kernel call
+        for (int i = start; i < end; i++) {
+            viewPixels[i] = texels[texOffset + ((v >> FIXED_SHIFT & maskV) << strideShift) + (u >> FIXED_SHIFT & maskU)];
+            u += stepU;
+            v += stepV;
+        }
+        kernels.shade(viewPixels, start, end, shadeTable, spanShade[y]);
+    }
 
-        int startX = Math.max(0, playerMiniMapX - MINIMAP_SIZE / 2);
-        int startY = Math.max(0, playerMiniMapY - MINIMAP_SIZE / 2);
-        int endX = Math.min(mapWidth, startX + MINIMAP_SIZE);
-        int endY = Math.min(mapHeight, startY + MINIMAP_SIZE);
+    void castRays() {
+        if (columnMajor) {
+            prepareSpans();
+        }
+        workers.run(viewWidth, wallPass);
+    }
 
-        int visibleWidth = endX - startX;
-        int visibleHeight = endY - startY;
+    // Each worker owns the columns [startX, endX) of the frame, so pixel and wall buffer writes never overlap
+    private void castRayStrip(int worker, int startX, int endX) {
+        double playerX = camera.getPosX();
+        double playerY = camera.getPosY();
+        double[] rayDirXs = camera.getRayDirX();
+        double[] rayDirYs = camera.getRayDirY();
 
-        // Draw the visible portion of the minimap
-        g.drawImage(miniMap,
-                miniMapX, miniMapY, miniMapX + visibleWidth, miniMapY + visibleHeight,
-                startX, startY, endX, endY,
-                null);
+        for (int x = startX; x < endX; x++) {
+            double rayDirX = rayDirXs[x];
+            double rayDirY = rayDirYs[x];
 
-        // Draw border around the minimap
-        g.setColor(Color.WHITE);
-        g.drawRect(miniMapX, miniMapY, MINIMAP_SIZE, MINIMAP_SIZE);
+            boolean hit = castRay(x, playerX, playerY, rayDirX, rayDirY);
+            if (hit) {
+                drawWallSlice(x, rayDirX, rayDirY);
+            }
+            if (columnMajor) {
+                drawColumnCeilingAndFloor(x, hit);
+            }
+        }
     }
 
+    // Per-column counterpart of drawCeilingAndFloor: fills the rows of column x above and below the wall.
+    // Used by the column-major pass and for columns exposed by temporal reprojection
+    private void drawColumnCeilingAndFloor(int x, boolean hit) {
+        int drawStart = viewHeight / 2;
+        int drawEnd = drawStart;
+        if (hit) {
+            int lineHeight = (int) (viewHeight / wallDistances[x]);
+            drawStart = Math.max(0, -lineHeight / 2 + viewHeight / 2);
+            drawEnd = Math.max(drawStart, Math.min(viewHeight - 1, lineHeight / 2 + viewHeight / 2));
+        }
+        drawColumnSpan(x, 0, drawStart);
+        drawColumnSpan(x, drawEnd, viewHeight);
+    }
 
-    private void drawHealth(Graphics2D g) {
-        BufferedImage fullHeart = Game.hudTextures.getTile(1);
-        BufferedImage halfHeart = Game.hudTextures.getTile(2);
-        BufferedImage emptyHeart = Game.hudTextures.getTile(3);
-
-        double healthPercentage = player.getHealth();
-        int totalHearts = 10;
-        int fullHearts = (int) (healthPercentage / 10.0);
-        int halfHearts = (healthPercentage % 10.0 >= 5.0) ? 1 : 0;
-        int emptyHearts = totalHearts - fullHearts - halfHearts;
-
-        int heartWidth = fullHeart.getWidth();
-        int startX = 10;
-        int startY = gameHeight + 10;
+    private void drawColumnSpan(int x, int from, int to) {
+        int[] target = columnMajor ? columnPixels : viewPixels;
+        int offset = columnMajor ? x * viewHeight : x;
+        int step = columnMajor ? 1 : viewWidth;
+        int split = Math.min(Math.max(HALF_HEIGHT, from), to);
+        if (sky != null) {
+            sky.drawColumn(target, offset, step, x, from, split, skyStartColumn);
+        } else {
+            drawColumnSurface(world.getCeilingTexture(), target, offset, step, x, from, split, CEILING_COLOR);
+        }
+        drawColumnSurface(world.getFloorTexture(), target, offset, step, x, split, to, FLOOR_COLOR);
+    }
 
-        for (int i = 0; i < fullHearts; i++) {
-            g.drawImage(fullHeart, startX + i * heartWidth, startY, null);
+    private void drawColumnSurface(TextureAtlas texture, int[] target, int offset, int step, int x, int from, int to, int fallbackColor) {
+        if (from >= to) return;
+        if (texture == null) {
+            if (step == 1) {
+                kernels.fill(target, offset + from, offset + to, fallbackColor);
+            } else {
+                for (int y = from, dst = offset + from * step; y < to; y++, dst += step) {
+                    target[dst] = fallbackColor;
+                }
+            }
+            return;
         }
-        if (halfHearts == 1) {
-            g.drawImage(halfHeart, startX + fullHearts * heartWidth, startY, null);
+
+        int[] texels = texture.getPixels();
+        int texOffset = texture.getTileOffset(1);
+        int strideShift = texture.getStrideShift();
+        int maskU = texture.getTileWidth() - 1;
+        int maskV = texture.getTileHeight() - 1;
+
+        // Same spans as drawTextureRow; wrapping int arithmetic makes start + x * step equal to x steps
+        byte[] indices = palettized ? texture.getIndices(0) : null;
+        if (indices != null) {
+            for (int y = from, dst = offset + from * step; y < to; y++, dst += step) {
+                int u = spanU[y] + x * spanStepU[y];
+                int v = spanV[y] + x * spanStepV[y];
+                target[dst] = colormap[spanShade[y] << 8 | indices[texOffset + ((v >> FIXED_SHIFT & maskV) << strideShift) + (u >> FIXED_SHIFT & maskU)] & 0xFF];
+            }
+            return;
         }
-        for (int i = 0; i < emptyHearts; i++) {
-            g.drawImage(emptyHeart, startX + (fullHearts + halfHearts + i) * heartWidth, startY, null);
+        for (int y = from, dst = offset + from * step; y < to; y++, dst += step) {
+            int u = spanU[y] + x * spanStepU[y];
+            int v = spanV[y] + x * spanStepV[y];
+            int color = texels[texOffset + ((v >> FIXED_SHIFT & maskV) << strideShift) + (u >> FIXED_SHIFT & maskU)];
+            target[dst] = applyShading(color, spanShade[y]);
         }
     }
 
-    private void drawWeaponIcon(Graphics2D g) {
-        Weapon weapon = player.getWeapon();
-        BufferedImage weaponIcon = weapon.getGunSprite().getIconSprite();
-        int weaponIconX = 10;
-        int weaponIconY = gameHeight + 40;
-        g.drawImage(weaponIcon, weaponIconX, weaponIconY, null);
-
-        GUN_NAME_TEXT.setText(weapon.getName());
-        GUN_NAME_TEXT.draw(g, weaponIconX + 40, weaponIconY);
-
-        GUN_AMMO_TEXT.setText(String.valueOf(weapon.getAmmo()));
-        GUN_AMMO_TEXT.draw(g, weaponIconX + 40, weaponIconY + 15);
+    // Rebuilds this frame's floor and wall layer from the key frame if nothing but the view direction changed:
+    // copied as is for the same pose, reprojected column by column after a pure rotation
+    private boolean reuseWorldLayer() {
+        if (!temporalReuse || columnMajor || !keyFrameValid
+                || world != keyWorld || world.getMap().getRevision() != keyRevision
+                || shadeTable != keyShadeTable || wallAtlas != keyWallAtlas
+                || camera.getPosX() != keyPosX || camera.getPosY() != keyPosY) {
+            return false;
+        }
+        if (camera.getDirX() == keyDirX && camera.getDirY() == keyDirY
+                && camera.getPlaneX() == keyPlaneX && camera.getPlaneY() == keyPlaneY) {
+            System.arraycopy(keyPixels, 0, viewPixels, 0, viewWidth * viewHeight);
+            System.arraycopy(keyDistances, 0, wallDistances, 0, viewWidth);
+            System.arraycopy(keyHitX, 0, wallHitX, 0, viewWidth);
+            System.arraycopy(keyTiles, 0, wallTiles, 0, viewWidth);
+            System.arraycopy(keySides, 0, wallSides, 0, viewWidth);
+            reusedFrames++;
+            return true;
+        }
+        return reprojectWorldLayer();
     }
 
-    private void drawFPS(Graphics2D g) {
-        FPS_TEXT.draw(g, 0, 0);
-    }
+    private boolean reprojectWorldLayer() {
+        double planeLengthSq = camera.getPlaneX() * camera.getPlaneX() + camera.getPlaneY() * camera.getPlaneY();
+        double keyPlaneLengthSq = keyPlaneX * keyPlaneX + keyPlaneY * keyPlaneY;
+        if (Math.abs(planeLengthSq - keyPlaneLengthSq) > 1e-9) {
+            return false; // The field of view changed
+        }
 
-    private void drawCeilingAndFloor()
-    {
-        if (!mapReceived) { return; }
-        Map map = getMap();
-        for (int y = 0; y < gameHeight; y++) {
-            if (y < HALF_HEIGHT) {
-                if (map.getCeilingImage() != null) {
-                    drawTextureRow(map.getCeilingImage(), y, 0);
-                } else {
-                    Arrays.fill(pixels, y * width, (y + 1) * width, Color.BLACK.getRGB());
+        double invDet = 1.0 / (keyPlaneX * keyDirY - keyDirX * keyPlaneY);
+        double[] cameraX = camera.getCameraX();
+        double[] rayDirX = camera.getRayDirX();
+        double[] rayDirY = camera.getRayDirY();
+        double half = viewHeight / 2;
+        int exposed = 0;
+        for (int x = 0; x < viewWidth; x++) {
+            // The current ray in the key frame's camera space gives the key column that saw it
+            double depth = invDet * (keyPlaneX * rayDirY[x] - keyPlaneY * rayDirX[x]);
+            int source = -1;
+            if (depth > 0) {
+                double keyCameraX = invDet * (keyDirY * rayDirX[x] - keyDirX * rayDirY[x]) / depth;
+                int column = (int) Math.floor((keyCameraX + 1) * viewWidth / 2 + 0.5);
+                if (column >= 0 && column < viewWidth) {
+                    source = column;
                 }
-            } else {
-                if (map.getFloorImage() != null) {
-                    drawTextureRow(map.getFloorImage(), y, HALF_HEIGHT);
-                } else {
-                    Arrays.fill(pixels, y * width, (y + 1) * width, Color.DARK_GRAY.getRGB());
+            }
+            // Points along the ray keep their distance, but the perpendicular depth scales with the cosine to the
+            // view direction, and the offsets from the horizon with its inverse
+            double scale = 0;
+            if (source >= 0) {
+                double c = cameraX[source];
+                scale = Math.sqrt((1 + c * c * planeLengthSq) / (1 + cameraX[x] * cameraX[x] * planeLengthSq));
+                // A wall cut off by the screen edges in the key frame can't be stretched to show where it ends
+                if (scale > 1 && viewHeight / keyDistances[source] >= viewHeight) {
+                    source = -1;
                 }
             }
+            reprojectSource[x] = source;
+            if (source < 0) {
+                exposed++;
+                continue;
+            }
+            wallDistances[x] = keyDistances[source] * scale;
+            wallHitX[x] = keyHitX[source];
+            wallTiles[x] = keyTiles[source];
+            wallSides[x] = keySides[source];
+            reprojectStart[x] = toFixed((half - half * scale + 0.5) * FIXED_ONE);
+            reprojectStep[x] = toFixed(scale * FIXED_ONE);
         }
+        // Past a point the key frame is too far off; render fully and make this the new key frame
+        if (exposed > viewWidth / MAX_EXPOSED_FRACTION) {
+            return false;
+        }
+        reprojectCeiling = sky == null && world.getCeilingTexture() != null;
+        reprojectFloor = world.getFloorTexture() != null;
+        if (!reprojectCeiling) {
+            drawCeiling();
+        }
+        if (!reprojectFloor) {
+            drawFloor();
+        }
+        if (exposed > 0) {
+            prepareSpans();
+        }
+        workers.run(viewWidth, reprojectPass);
+        reprojectedFrames++;
+        return true;
     }
 
-    private void drawTextureRow(BufferedImage texture, int y, int offset) {
-        if (y < 0 || y >= gameHeight) return;
-
-        double planeZ = 0.5 * gameHeight;
-        double rowDistance = planeZ / (y - HALF_HEIGHT + 0.1);
-
-        double floorStepX = rowDistance * (player.getPlaneX() * 2) / width;
-        double floorStepY = rowDistance * (player.getPlaneY() * 2) / width;
-
-        double floorX = player.getX() + rowDistance * (player.getDirX() - player.getPlaneX());
-        double floorY = player.getY() + rowDistance * (player.getDirY() - player.getPlaneY());
-
-        int pixelOffset = y * width;
-        for (int x = 0; x < width; x++) {
-            int tileX = Math.abs((int) (floorX * texture.getWidth()) % texture.getWidth());
-            int tileY = Math.abs((int) (floorY * texture.getHeight()) % texture.getHeight());
-
-            floorX += floorStepX;
-            floorY += floorStepY;
-
-            int color = texture.getRGB(tileX, tileY);
-            color = applyShading(color, rowDistance);
-            pixels[pixelOffset + x] = color;
+    private void reprojectStrip(int worker, int startX, int endX) {
+        double posX = camera.getPosX();
+        double posY = camera.getPosY();
+        for (int x = startX; x < endX; x++) {
+            int source = reprojectSource[x];
+            if (source < 0) {
+                // Columns the key frame never saw are cast and drawn from scratch
+                double rayDirX = camera.getRayDirX()[x];
+                double rayDirY = camera.getRayDirY()[x];
+                boolean hit = castRay(x, posX, posY, rayDirX, rayDirY);
+                if (hit) {
+                    drawWallSlice(x, rayDirX, rayDirY);
+                }
+                if (reprojectCeiling || reprojectFloor) {
+                    drawColumnCeilingAndFloor(x, hit);
+                }
+                continue;
+            }
+            // The wall rows of this frame only read the wall rows of the key column, so its edges never pick
+            // up floor or ceiling pixels
+            int lineHeight = (int) (viewHeight / wallDistances[x]);
+            int wallStart = Math.max(0, -lineHeight / 2 + viewHeight / 2);
+            int wallEnd = Math.max(wallStart, Math.min(viewHeight - 1, lineHeight / 2 + viewHeight / 2));
+            int keyLineHeight = (int) (viewHeight / keyDistances[source]);
+            int keyStart = Math.max(0, -keyLineHeight / 2 + viewHeight / 2);
+            int keyEnd = Math.max(keyStart + 1, Math.min(viewHeight - 1, keyLineHeight / 2 + viewHeight / 2));
+            if (reprojectCeiling) {
+                copyKeyRows(x, source, 0, Math.min(wallStart, HALF_HEIGHT), 0, viewHeight - 1);
+            }
+            copyKeyRows(x, source, wallStart, wallEnd, keyStart, keyEnd - 1);
+            if (reprojectFloor) {
+                copyKeyRows(x, source, Math.max(wallEnd, HALF_HEIGHT), viewHeight, 0, viewHeight - 1);
+            }
         }
     }
 
-    private void castRays() {
-        double playerX = player.getX();
-        double playerY = player.getY();
-        double playerAngle = player.getAngle();
-
-        for (int x = 0; x < width; x++) {
-            double cameraX = 2 * x / (double) width - 1;
-            double rayDirX = Math.cos(playerAngle) + player.getPlaneX() * cameraX;
-            double rayDirY = Math.sin(playerAngle) + player.getPlaneY() * cameraX;
-
-            RaycastHit hit = castRay(playerX, playerY, rayDirX, rayDirY);
+    // Rows [from, to) of view column x, read from key column source and clamped to the key rows [minRow, maxRow]
+    private void copyKeyRows(int x, int source, int from, int to, int minRow, int maxRow) {
+        int start = reprojectStart[x];
+        int step = reprojectStep[x];
+        for (int y = from, dst = from * viewWidth + x; y < to; y++, dst += viewWidth) {
+            int row = (start + y * step) >> FIXED_SHIFT;
+            row = row < minRow ? minRow : row > maxRow ? maxRow : row;
+            viewPixels[dst] = keyPixels[row * viewWidth + source];
+        }
+    }
 
-            if (hit != null) {
-                drawWallSlice(x, hit, rayDirX, rayDirY);
-                zBuffer[x] = hit.distance;
-            }
+    private void storeKeyFrame() {
+        if (!temporalReuse || columnMajor) {
+            return;
         }
+        System.arraycopy(viewPixels, 0, keyPixels, 0, viewWidth * viewHeight);
+        System.arraycopy(wallDistances, 0, keyDistances, 0, viewWidth);
+        System.arraycopy(wallHitX, 0, keyHitX, 0, viewWidth);
+        System.arraycopy(wallTiles, 0, keyTiles, 0, viewWidth);
+        System.arraycopy(wallSides, 0, keySides, 0, viewWidth);
+        keyPosX = camera.getPosX();
+        keyPosY = camera.getPosY();
+        keyDirX = camera.getDirX();
+        keyDirY = camera.getDirY();
+        keyPlaneX = camera.getPlaneX();
+        keyPlaneY = camera.getPlaneY();
+        keyWorld = world;
+        keyRevision = world.getMap().getRevision();
+        keyShadeTable = shadeTable;
+        keyWallAtlas = wallAtlas;
+        keyFrameValid = true;
     }
 
-    private RaycastHit castRay(double startX, double startY, double dirX, double dirY) {
+    boolean castRay(int column, double startX, double startY, double dirX, double dirY) {
+        Map map = world.getMap();
         double deltaDistX = Math.abs(1 / dirX);
         double deltaDistY = Math.abs(1 / dirY);
 
         int mapX = (int) startX;
         int mapY = (int) startY;
+        if (mapX < 0 || mapX >= map.getWidth() || mapY < 0 || mapY >= map.getHeight()) {
+            return missRay(column);
+        }
+        int[] cells = map.getCells();
+        int cell = map.cellIndex(mapX, mapY);
+        int cellStepY;
 
         double sideDistX, sideDistY;
         int stepX, stepY;
@@ -558,6 +824,7 @@ public class Renderer {
             stepY = 1;
             sideDistY = (mapY + 1.0 - startY) * deltaDistY;
         }
+        cellStepY = stepY * map.getStride();
 
         boolean hit = false;
         boolean side = false;
@@ -567,14 +834,17 @@ public class Renderer {
             if (sideDistX < sideDistY) {
                 sideDistX += deltaDistX;
                 mapX += stepX;
+                cell += stepX;
                 side = false;
             } else {
                 sideDistY += deltaDistY;
                 mapY += stepY;
+                cell += cellStepY;
                 side = true;
             }
 
-            if (map.isWall(mapX, mapY)) {
+            // No bounds check needed: the solid border around the cell grid always ends the ray
+            if ((cells[cell] & Map.FLAG_SOLID) != 0) {
                 hit = true;
                 if (side) {
                     perpWallDist = (mapY - startY + (1 - stepY) / 2) / dirY;
@@ -597,91 +867,413 @@ public class Renderer {
                 wallX = EPSILON;
             }
 
-            return new RaycastHit(perpWallDist, wallX, map.getTileID(mapX, mapY), side);
+            wallDistances[column] = perpWallDist;
+            wallHitX[column] = wallX;
+            wallTiles[column] = map.getTileID(mapX, mapY);
+            wallSides[column] = side;
+            return true;
         }
 
-        return null;
+        return missRay(column);
     }
 
-    private void drawWallSlice(int x, RaycastHit hit, double rayDirX, double rayDirY) {
-        int lineHeight = (int) (gameHeight / hit.distance);
-
-        int drawStart = Math.max(0, -lineHeight / 2 + gameHeight / 2);
-        int drawEnd = Math.min(gameHeight - 1, lineHeight / 2 + gameHeight / 2);
+    private boolean missRay(int column) {
+        wallDistances[column] = Double.POSITIVE_INFINITY;
+        wallHitX[column] = 0;
+        wallTiles[column] = -1;
+        wallSides[column] = false;
+        return false;
+    }
 
-        BufferedImage texture = textures.getTile(hit.tileID);
-        int texX = (int) (hit.wallX * texture.getWidth());
-        if ((!hit.side && rayDirX > 0) || (hit.side && rayDirY < 0)) {
-            texX = texture.getWidth() - texX - 1;
+    void drawWallSlice(int x, double rayDirX, double rayDirY) {
+        double distance = wallDistances[x];
+        boolean side = wallSides[x];
+        int lineHeight = (int) (viewHeight / distance);
+
+        int drawStart = Math.max(0, -lineHeight / 2 + viewHeight / 2);
+        int drawEnd = Math.min(viewHeight - 1, lineHeight / 2 + viewHeight / 2);
+
+        TextureAtlas texture = wallAtlas;
+        // Distant walls step over several texels per pixel; read them from a smaller mip level instead
+        int level = mipmapping ? texture.levelFor((double) texture.getTileHeight() / lineHeight) : 0;
+        int[] texels = texture.getPixels(level);
+        int texWidth = texture.getTileWidth() >> level;
+        int texHeight = texture.getTileHeight() >> level;
+        int strideShift = texture.getStrideShift(level);
+        int texX = (int) (wallHitX[x] * texWidth);
+        if ((!side && rayDirX > 0) || (side && rayDirY < 0)) {
+            texX = texWidth - texX - 1;
         }
-
-        double step = 1.0 * texture.getHeight() / lineHeight;
-        double texPos = (drawStart - gameHeight / 2 + lineHeight / 2) * step;
-
-        for (int y = drawStart; y < drawEnd; y++) {
-            int texY = (int) texPos & (texture.getHeight() - 1);
+        int columnOffset = texture.getTileOffset(wallTiles[x], level) + texX;
+
+        int shadeLevel = shadeTable.getLevel(distance);
+        double step = 1.0 * texHeight / lineHeight;
+        double texPos = (drawStart - viewHeight / 2 + lineHeight / 2) * step;
+
+        byte[] indices = palettized ? texture.getIndices(level) : null;
+        if (indices != null) {
+            int shadeBase = shadeLevel << 8;
+            int[] target = columnMajor ? columnPixels : viewPixels;
+            int dstStep = columnMajor ? 1 : viewWidth;
+            int dst = columnMajor ? x * viewHeight + drawStart : drawStart * viewWidth + x;
+            for (int y = drawStart; y < drawEnd; y++, dst += dstStep) {
+                int texY = (int) texPos & (texHeight - 1);
+                texPos += step;
+                target[dst] = colormap[shadeBase | indices[columnOffset + (texY << strideShift)] & 0xFF];
+            }
+            return;
+        }
+        if (columnMajor) {
+            // The slice is contiguous here, so it is shaded as one span after gathering the texels
+            int start = x * viewHeight + drawStart;
+            int end = x * viewHeight + Math.max(drawStart, drawEnd);
+            for (int dst = start; dst < end; dst++) {
+                int texY = (int) texPos & (texHeight - 1);
+                texPos += step;
+                columnPixels[dst] = texels[columnOffset + (texY << strideShift)];
+            }
+            kernels.shade(columnPixels, start, end, shadeTable, shadeLevel);
+            return;
+        }
+        for (int y = drawStart, dst = drawStart * viewWidth + x; y < drawEnd; y++, dst += viewWidth) {
+            int texY = (int) texPos & (texHeight - 1);
             texPos += step;
-            int color = texture.getRGB(texX, texY);
-            color = applyShading(color, hit.distance);
-            pixels[y * width + x] = color;
+            int color = texels[columnOffset + (texY << strideShift)];
+            color = applyShading(color, shadeLevel);
+            viewPixels[dst] = color;
         }
     }
 
-    private int applyShading(int color, double distance) {
-        double shade = 1.0 - Math.min(distance / MAX_DISTANCE, 1.0);
-        int r = (int) ((color >> 16 & 0xFF) * shade);
-        int g = (int) ((color >> 8 & 0xFF) * shade);
-        int b = (int) ((color & 0xFF) * shade);
-        return (r << 16) | (g << 8) | b;
+    int applyShading(int color, int shadeLevel) {
+        return shadeTable.shade(color, shadeLevel);
     }
 
-    private void renderEntities() {
+    // Entities, remote players and projectiles are collected into one batch, sorted by depth and drawn together
+    private void renderSprites() {
+        PROFILER.begin(FrameProfiler.ENTITIES);
+        spriteBatch.clear();
         for (SpriteEntity spriteEntity : entities) {
             spriteEntity.render(this, player);
         }
+        PROFILER.end(FrameProfiler.ENTITIES);
+        PROFILER.begin(FrameProfiler.PLAYERS);
+        if (this.isMultiplayer) {
+            for (SpriteEntity playerEntity : otherPlayers.values()) {
+                playerEntity.render(this, player);
+            }
+        }
+        PROFILER.end(FrameProfiler.PLAYERS);
+        PROFILER.begin(FrameProfiler.PROJECTILES);
+        TextureAtlas projectileAtlas = projectileTextures.getAtlas();
+        for (Projectile projectile : projectiles) {
+            if (projectile.isActive()) {
+                queueSprite(projectileAtlas, projectile.getTextureID(), projectile.getX(), projectile.getY(), projectile.getSize(), false);
+            } else {
+                projectiles.remove(projectile);
+            }
+        }
+        PROFILER.end(FrameProfiler.PROJECTILES);
+
+        PROFILER.begin(FrameProfiler.SPRITES);
+        spriteBatch.sortBackToFront();
+        buildDepthBlocks();
+        for (int i = 0; i < spriteBatch.size(); i++) {
+            SpriteBatch.Entry entry = spriteBatch.get(i);
+            drawSprite(entry.atlas, entry.tileID, entry.screenX, entry.screenY, entry.size, entry.distance, RenderTarget.GAME);
+        }
+        PROFILER.end(FrameProfiler.SPRITES);
+    }
+
+    public void queueSprite(BufferedImage sprite, double x, double y, double size, boolean standsOnFloor) {
+        if (sprite == null) return;
+        queueSprite(atlasFor(sprite), 1, x, y, size, standsOnFloor);
+    }
+
+    // Projects a billboard at world position (x, y) into camera space, the same projection the walls use,
+    // and adds it to this frame's sprite pass
+    public void queueSprite(TextureAtlas atlas, int tileID, double x, double y, double size, boolean standsOnFloor) {
+        double dx = x - camera.getPosX();
+        double dy = y - camera.getPosY();
+        double depth = camera.transformY(dx, dy);
+
+        // Behind the camera, too close or too far
+        if (depth < 0.1 || depth > MAX_DISTANCE) return;
+
+        int screenX = (int) (viewWidth * 0.5 * (1 + camera.transformX(dx, dy) / depth));
+        int screenSize = (int) ((viewHeight / depth) * size);
+        if (screenX + screenSize / 2 < 0 || screenX - screenSize / 2 >= viewWidth) return;
+
+        SpriteBatch.Entry entry = spriteBatch.add();
+        entry.atlas = atlas;
+        entry.tileID = tileID;
+        entry.screenX = screenX;
+        // Entities stand on the floor, projectiles fly at eye height
+        entry.screenY = standsOnFloor ? (int) (viewHeight / 2 * (1 + 1 / depth)) : HALF_HEIGHT;
+        entry.size = screenSize;
+        entry.distance = depth;
+    }
+
+    void buildDepthBlocks() {
+        for (int block = 0; block < depthBlockMax.length; block++) {
+            int start = block << DEPTH_BLOCK_SHIFT;
+            int end = Math.min(viewWidth, start + (1 << DEPTH_BLOCK_SHIFT));
+            double max = 0;
+            for (int x = start; x < end; x++) {
+                max = Math.max(max, wallDistances[x]);
+            }
+            depthBlockMax[block] = max;
+        }
+    }
+
+    private boolean isOccluded(int startX, int endX, double distance) {
+        for (int block = startX >> DEPTH_BLOCK_SHIFT; block <= endX >> DEPTH_BLOCK_SHIFT; block++) {
+            if (distance < depthBlockMax[block]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void drawSprite(BufferedImage sprite, int screenX, int screenY, int size, double distance, RenderTarget target) {
-        if (sprite == null || size <= 0) return;
+        if (sprite == null) return;
+        drawSprite(atlasFor(sprite), 1, screenX, screenY, size, distance, target);
+    }
 
-        int halfSize = size / 2;
-        int targetHeight = (target == RenderTarget.GAME) ? gameHeight : hudHeight;
+    public void drawSprite(TextureAtlas atlas, int tileID, int screenX, int screenY, int size, double distance, RenderTarget target) {
+        if (atlas == null || size <= 0) return;
 
-        double texStepX = (double) sprite.getWidth() / size;
-        double texStepY = (double) sprite.getHeight() / size;
+        int halfSize = size / 2;
+        boolean inGame = target == RenderTarget.GAME;
+        boolean columns = inGame && columnMajor;
+        // Game sprites go into the (possibly scaled) 3D view, HUD sprites straight into the frame
+        int[] targetPixels = inGame ? viewPixels : pixels;
+        int targetWidth = inGame ? viewWidth : width;
+        int targetHeight = inGame ? viewHeight : hudHeight;
+
+        // Palettized atlases keep ARGB texels for level 0 at most, so HUD sprites are not mipmapped there
+        int level = mipmapping && (inGame || !palettized) ? atlas.levelFor((double) atlas.getTileWidth() / size) : 0;
+        int[] texels = atlas.getPixels(level);
+        int tileOffset = atlas.getTileOffset(tileID, level);
+        int strideShift = atlas.getStrideShift(level);
+        int spriteWidth = atlas.getTileWidth() >> level;
+        int spriteHeight = atlas.getTileHeight() >> level;
+        int shadeLevel = shadeTable.getLevel(distance);
+        byte[] indices = palettized ? atlas.getIndices(level) : null;
+        boolean indexed = indices != null && (inGame || texels == null);
+        double texStepX = (double) spriteWidth / size;
+        double texStepY = (double) spriteHeight / size;
 
         int startX = Math.max(0, screenX - halfSize);
-        int endX = Math.min(width - 1, screenX + halfSize);
+        int endX = Math.min(targetWidth - 1, screenX + halfSize);
         int startY = Math.max(0, screenY - halfSize);
         int endY = Math.min(targetHeight - 1, screenY + halfSize);
+        if (startX > endX || startY > endY) return;
+        if (inGame && isOccluded(startX, endX, distance)) return;
+
+        // Texture rows only depend on the screen row, so map them once for the whole sprite: texture row t covers
+        // the screen rows spriteRowStarts[t] until spriteRowStarts[t + 1], relative to startY
+        int rows = endY - startY + 1;
+        if (spriteRowStarts.length <= spriteHeight) {
+            spriteRowStarts = new int[spriteHeight + 1];
+        }
+        int nextRow = 0;
+        for (int i = 0; i < rows; i++) {
+            int textureY = (int) ((startY + i - (screenY - halfSize)) * texStepY);
+            while (nextRow <= textureY && nextRow <= spriteHeight) {
+                spriteRowStarts[nextRow++] = i;
+            }
+        }
+        while (nextRow <= spriteHeight) {
+            spriteRowStarts[nextRow++] = rows;
+        }
+        int[] runs = atlas.getRuns(level);
+        int[] runStarts = atlas.getRunStarts(level);
+        int runColumn = atlas.getRunColumn(tileID, level);
+        int shadeBase = shadeLevel << 8;
+        int[] dstPixels = columns ? columnPixels : targetPixels;
+        int dstStep = columns ? 1 : targetWidth;
+
+        int x = startX;
+        while (x <= endX) {
+            if (inGame) {
+                int block = x >> DEPTH_BLOCK_SHIFT;
+                if (depthBlockMax[block] <= distance) {
+                    x = (block + 1) << DEPTH_BLOCK_SHIFT; // The whole block of columns is behind a wall
+                    continue;
+                }
+                if (distance >= wallDistances[x]) {
+                    x++;
+                    continue;
+                }
+            }
 
-        for (int x = startX; x <= endX; x++) {
-            if (target == RenderTarget.GAME && distance >= zBuffer[x]) continue;
+            int textureX = (int) ((x - (screenX - halfSize)) * texStepX);
+            if (textureX >= spriteWidth) {
+                x++;
+                continue;
+            }
+            int column = columns ? x * viewHeight + startY : startY * targetWidth + x;
+            int texel = tileOffset + textureX;
+            // Only the opaque runs of the texture column are visited, and each texel is shaded once for
+            // all the screen rows it covers
+            for (int r = runStarts[runColumn + textureX], lastRun = runStarts[runColumn + textureX + 1]; r < lastRun; r++) {
+                int runEnd = runs[r] & 0xFFFF;
+                for (int textureY = runs[r] >>> 16; textureY < runEnd; textureY++) {
+                    int from = spriteRowStarts[textureY];
+                    int to = spriteRowStarts[textureY + 1];
+                    if (from >= to) continue;
+                    int offset = texel + (textureY << strideShift);
+                    int color;
+                    if (indexed) {
+                        int index = indices[offset] & 0xFF;
+                        color = inGame ? colormap[shadeBase | index] : 0xFF000000 | palette.getColor(index);
+                    } else {
+                        color = inGame ? applyShading(texels[offset], shadeLevel) : texels[offset];
+                    }
+                    if (columns) {
+                        kernels.fill(dstPixels, column + from, column + to, color);
+                    } else {
+                        for (int i = from, dst = column + from * dstStep; i < to; i++, dst += dstStep) {
+                            dstPixels[dst] = color;
+                        }
+                    }
+                }
+            }
+            x++;
+        }
+    }
 
-            double texX = (x - (screenX - halfSize)) * texStepX;
+    void transposeView() {
+        if (columnMajor) {
+            workers.run(viewWidth, transposePass);
+        }
+    }
 
-            for (int y = startY; y <= endY; y++) {
-                double texY = (y - (screenY - halfSize)) * texStepY;
+    // Blocked transpose of the column-major view into viewPixels, so reads and writes both stay within a tile
+    private void transposeStrip(int worker, int startX, int endX) {
+        for (int blockX = startX; blockX < endX; blockX += TRANSPOSE_BLOCK) {
+            int blockEndX = Math.min(endX, blockX + TRANSPOSE_BLOCK);
+            for (int blockY = 0; blockY < viewHeight; blockY += TRANSPOSE_BLOCK) {
+                int blockEndY = Math.min(viewHeight, blockY + TRANSPOSE_BLOCK);
+                for (int y = blockY; y < blockEndY; y++) {
+                    int dst = y * viewWidth;
+                    for (int x = blockX; x < blockEndX; x++) {
+                        viewPixels[dst + x] = columnPixels[x * viewHeight + y];
+                    }
+                }
+            }
+        }
+    }
 
-                int textureX = (int) texX;
-                int textureY = (int) texY;
+    private void upscaleView() {
+        if (viewPixels != pixels) {
+            workers.run(gameHeight, upscalePass);
+        }
+    }
 
-                if (textureX >= 0 && textureX < sprite.getWidth() && textureY >= 0 && textureY < sprite.getHeight()) {
-                    int color = sprite.getRGB(textureX, textureY);
+    // Nearest-neighbour upscale of the view, split into row strips; repeated source rows are copied from the row above
+    private void upscaleRows(int worker, int startY, int endY) {
+        int previousSourceRow = -1;
+        for (int y = startY; y < endY; y++) {
+            int sourceRow = y * viewHeight / gameHeight;
+            int dst = y * width;
+            if (sourceRow == previousSourceRow) {
+                System.arraycopy(pixels, dst - width, pixels, dst, width);
+                continue;
+            }
+            int src = sourceRow * viewWidth;
+            for (int x = 0; x < width; x++) {
+                pixels[dst + x] = viewPixels[src + upscaleColumns[x]];
+            }
+            previousSourceRow = sourceRow;
+        }
+    }
 
-                    if ((color & 0xFF000000) != 0) {
-                        if (target == RenderTarget.GAME) {
-                            color = applyShading(color, distance);
-                        }
-                        pixels[y * width + x] = color;
-                    }
+    private void presentBuffer(BufferedImage bufferedImage) {
+        presenter.present(bufferedImage);
+    }
+
+    // Times every backend that works here on a few frames and keeps the fastest, unless one is
+    // named with -Dpotato.presenter. With vsync on timing is meaningless, so the flip backend wins if it works
+    private Presenter selectPresenter() {
+        if (canvas == null) {
+            return new OffscreenPresenter();
+        }
+        if (PRESENTER != null) {
+            try {
+                return createPresenter(PRESENTER);
+            } catch (Exception e) {
+                System.err.println("Failed to initialize presenter " + PRESENTER + ": " + e.getMessage());
+            }
+        }
+        Presenter fastest = null;
+        long fastestTime = Long.MAX_VALUE;
+        for (String name : PRESENTERS) {
+            Presenter candidate;
+            try {
+                candidate = createPresenter(name);
+            } catch (Exception e) {
+                System.err.println("Presenter " + name + " unavailable: " + e.getMessage());
+                continue;
+            }
+            long time = VSYNC && candidate instanceof BufferStrategyPresenter ? 0 : timePresenter(candidate);
+            if (time < fastestTime) {
+                if (fastest != null) {
+                    fastest.dispose();
                 }
+                fastest = candidate;
+                fastestTime = time;
+            } else {
+                candidate.dispose();
             }
         }
+        System.out.println("Presenting with " + fastest.getName());
+        return fastest;
     }
 
-    private void presentBuffer(BufferedImage bufferedImage) {
-        fastGraphics.drawImage(bufferedImage, 0, 0, null);
+    private Presenter createPresenter(String name) throws Exception {
+        switch (name) {
+            case "bufferstrategy":
+                if (!(canvas instanceof Canvas)) {
+                    throw new IllegalArgumentException("BufferStrategy needs a Canvas");
+                }
+                return new BufferStrategyPresenter((Canvas) canvas, VSYNC);
+            case "surface":
+                return new SurfaceDataPresenter(canvas);
+            case "image":
+                return new ImagePresenter(canvas);
+            default:
+                throw new IllegalArgumentException("Unknown presenter " + name);
+        }
+    }
+
+    private long timePresenter(Presenter candidate) {
+        candidate.present(buffer); // Warm up
+        long start = System.nanoTime();
+        for (int i = 0; i < PRESENTER_TRIAL_FRAMES; i++) {
+            candidate.present(buffer);
+        }
+        return System.nanoTime() - start;
+    }
+
+    public BufferedImage getFrame() {
+        return buffer;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    Camera getCamera() {
+        return camera;
+    }
+
+    SpriteBatch getSpriteBatch() {
+        return spriteBatch;
+    }
+
+    public Presenter getPresenter() {
+        return presenter;
     }
 
     private void renderWeapon() {
@@ -702,29 +1294,175 @@ public class Renderer {
         g.dispose();
     }
 
+    public boolean isMipmapping() {
+        return mipmapping;
+    }
+
+    public void setMipmapping(boolean mipmapping) {
+        this.mipmapping = mipmapping;
+        keyFrameValid = false;
+    }
+
+    public boolean isTemporalReuse() {
+        return temporalReuse;
+    }
+
+    public void setTemporalReuse(boolean temporalReuse) {
+        if (temporalReuse != this.temporalReuse) {
+            this.temporalReuse = temporalReuse;
+            resizeView();
+        }
+    }
+
+    public int getReusedFrames() {
+        return reusedFrames;
+    }
+
+    public int getReprojectedFrames() {
+        return reprojectedFrames;
+    }
+
+    public PixelKernels getPixelKernels() {
+        return kernels;
+    }
+
+    public boolean isColumnMajor() {
+        return columnMajor;
+    }
+
+    public void setColumnMajor(boolean columnMajor) {
+        if (columnMajor != this.columnMajor) {
+            this.columnMajor = columnMajor;
+            // Only the column buffer depends on the layout; the wall buffers and camera tables stay valid
+            columnPixels = columnMajor ? new int[viewWidth * viewHeight] : null;
+            keyFrameValid = false;
+        }
+    }
+
+    public double getRenderScale() {
+        return renderScale;
+    }
+
+    // Scales the internal resolution of the 3D view; the HUD always renders at the native resolution
+    public void setRenderScale(double renderScale) {
+        double clamped = Math.max(0.25, Math.min(1.0, renderScale));
+        if (clamped != this.renderScale) {
+            this.renderScale = clamped;
+            resizeView();
+        }
+    }
+
+    public ResolutionController getResolutionController() {
+        return resolutionController;
+    }
+
+    public void setResolutionController(ResolutionController resolutionController) {
+        this.resolutionController = resolutionController;
+    }
+
+    public void updateRenderScale(double frameMillis) {
+        if (resolutionController != null) {
+            setRenderScale(resolutionController.update(frameMillis));
+        }
+    }
+
+    public int getViewWidth() {
+        return viewWidth;
+    }
+
+    public int getViewHeight() {
+        return viewHeight;
+    }
+
+    private void resizeView() {
+        viewWidth = Math.max(1, (int) Math.round(width * renderScale));
+        viewHeight = Math.max(2, (int) Math.round(gameHeight * renderScale));
+        HALF_HEIGHT = viewHeight / 2;
+        viewPixels = (viewWidth == width && viewHeight == gameHeight) ? pixels : new int[viewWidth * viewHeight];
+        upscaleColumns = new int[width];
+        for (int x = 0; x < width; x++) {
+            upscaleColumns[x] = x * viewWidth / width;
+        }
+        columnPixels = columnMajor ? new int[viewWidth * viewHeight] : null;
+        keyPixels = temporalReuse ? new int[viewWidth * viewHeight] : null;
+        keyDistances = temporalReuse ? new double[viewWidth] : null;
+        keyHitX = temporalReuse ? new double[viewWidth] : null;
+        keyTiles = temporalReuse ? new int[viewWidth] : null;
+        keySides = temporalReuse ? new boolean[viewWidth] : null;
+        reprojectSource = temporalReuse ? new int[viewWidth] : null;
+        reprojectStart = temporalReuse ? new int[viewWidth] : null;
+        reprojectStep = temporalReuse ? new int[viewWidth] : null;
+        keyFrameValid = false;
+        allocateWallBuffers(viewWidth);
+        spanU = new int[viewHeight];
+        spanV = new int[viewHeight];
+        spanStepU = new int[viewHeight];
+        spanStepV = new int[viewHeight];
+        spanShade = new int[viewHeight];
+        camera.resize(viewWidth, viewHeight);
+        // The HUD layer isn't part of the view, but a resize or scale change shouldn't leave it stale either
+        if (hudLayer != null) {
+            hudLayer.invalidate();
+        }
+    }
+
+    private void allocateWallBuffers(int columns) {
+        this.wallDistances = new double[columns];
+        this.wallHitX = new double[columns];
+        this.wallTiles = new int[columns];
+        this.wallSides = new boolean[columns];
+        this.depthBlockMax = new double[(columns + (1 << DEPTH_BLOCK_SHIFT) - 1) >> DEPTH_BLOCK_SHIFT];
+        Arrays.fill(wallDistances, Double.POSITIVE_INFINITY);
+        Arrays.fill(wallTiles, -1);
+    }
+
+    // The wall buffers hold the results of the last wall pass and are only rewritten by the next render()
+    public double[] getWallDistances() {
+        return wallDistances;
+    }
+
+    public double[] getWallHitX() {
+        return wallHitX;
+    }
+
+    public int[] getWallTiles() {
+        return wallTiles;
+    }
+
+    public boolean[] getWallSides() {
+        return wallSides;
+    }
+
     public Map getMap() {
-        return map;
+        return world == null ? null : world.getMap();
     }
 
     public void setMap(Map map) {
-        this.map = map;
+        setWorld(new World(map, textures));
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public void setWorld(World world) {
+        this.world = world;
     }
     public void setDimensions(int width, int height) {
         this.width = width;
         this.height = height;
         this.gameHeight = (int) (height * 0.8);
         this.hudHeight = height - gameHeight;
-        HALF_HEIGHT = gameHeight / 2;
-
-        // Recreate zBuffer with new width
-        this.zBuffer = new double[width];
 
         // Recreate buffer and pixels array with new dimensions
         this.buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         this.pixels = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
 
-        // Update or recreate fastGraphics and surfaceData
-        updateFastGraphics();
+        // Recreate the view, the per-column wall buffers and the camera tables
+        resizeView();
+        this.hudLayer = new HudLayer(width, hudHeight);
+
+        presenter.resize(width, height);
 
         // Update player's plane values if they depend on screen dimensions
         double planeLength = Math.tan(HALF_FOV);
@@ -735,61 +1473,9 @@ public class Renderer {
         // notifyDimensionChangeListeners(width, height);
     }
 
-    private void updateFastGraphics() {
-        try {
-            if (surfaceData != null) {
-                surfaceData.invalidate();
-            }
-
-            String os = System.getProperty("os.name").toLowerCase();
-            if (os.contains("windows")) {
-                updateWindowsGraphics();
-            } else if (os.contains("linux")) {
-                updateLinuxGraphics();
-            } else {
-                updateFallbackGraphics();
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to update fast graphics: " + e.getMessage());
-            updateFallbackGraphics();
-        }
-    }
-
-    private void updateWindowsGraphics() throws Exception {
-        Class<?> peerClass = Class.forName("sun.awt.windows.WComponentPeer");
-        Class<?> surfaceDataClass = Class.forName("sun.java2d.windows.GDIWindowSurfaceData");
-        Method createDataMethod = surfaceDataClass.getMethod("createData", peerClass);
-
-        Object peer = canvas.getPeer();
-        if (peerClass.isInstance(peer)) {
-            surfaceData = (SurfaceData) createDataMethod.invoke(null, peer);
-            fastGraphics = new SunGraphics2D(surfaceData, Color.BLACK, Color.BLACK, null);
-        } else {
-            throw new RuntimeException("Unsupported peer type for Windows fast rendering");
-        }
-    }
-
-    private void updateLinuxGraphics() throws Exception {
-        Class<?> peerClass = Class.forName("sun.awt.X11ComponentPeer");
-        Class<?> surfaceDataClass = Class.forName("sun.java2d.xr.XRSurfaceData");
-        Method createDataMethod = surfaceDataClass.getMethod("createData", peerClass);
-
-        Object peer = canvas.getPeer();
-        if (peerClass.isInstance(peer)) {
-            surfaceData = (SurfaceData) createDataMethod.invoke(null, peer);
-            fastGraphics = new SunGraphics2D(surfaceData, Color.BLACK, Color.BLACK, null);
-        } else {
-            throw new RuntimeException("Unsupported peer type for Linux fast rendering");
-        }
-    }
-
-    private void updateFallbackGraphics() {
-        surfaceData = null;
-        fastGraphics = (SunGraphics2D) buffer.createGraphics();
-    }
-
     private void clearScreen() {
-        Arrays.fill(pixels, 0);
+        // The HUD rows are fully overwritten by the HUD layer
+        kernels.fill(pixels, 0, width * gameHeight, 0);
     }
 
 
@@ -799,19 +1485,4 @@ public class Renderer {
             processServerUpdates();
         }
     }
-
-
-    private static class RaycastHit {
-        final double distance;
-        final double wallX;
-        final int tileID;
-        final boolean side;
-
-        RaycastHit(double distance, double wallX, int tileID, boolean side) {
-            this.distance = distance;
-            this.wallX = wallX;
-            this.tileID = tileID;
-            this.side = side;
-        }
-    }
 }
\ No newline at end of file
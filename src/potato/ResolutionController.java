@@ -0,0 +1,54 @@
+package potato;
+
+public class ResolutionController {
+    private static final double SMOOTHING = 0.1;
+    private static final double STEP = 0.125;
+    private static final double DOWNSCALE_THRESHOLD = 1.05;
+    private static final double UPSCALE_THRESHOLD = 0.75;
+    private static final int COOLDOWN_FRAMES = 30;
+
+    private final double targetFrameMillis;
+    private final double minScale;
+    private final double maxScale;
+    private double averageFrameMillis;
+    private double scale;
+    private int cooldown;
+
+    public ResolutionController(double targetFPS, double minScale, double maxScale) {
+        this.targetFrameMillis = 1000.0 / targetFPS;
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.scale = maxScale;
+        this.averageFrameMillis = targetFrameMillis;
+    }
+
+    // Feeds one measured frame time and returns the render scale to use for the next frame.
+    // The scale only moves in fixed steps and waits a few frames between changes, so it doesn't oscillate
+    public double update(double frameMillis) {
+        averageFrameMillis += (frameMillis - averageFrameMillis) * SMOOTHING;
+        if (cooldown > 0) {
+            cooldown--;
+            return scale;
+        }
+        if (averageFrameMillis > targetFrameMillis * DOWNSCALE_THRESHOLD && scale > minScale) {
+            scale = Math.max(minScale, scale - STEP);
+            cooldown = COOLDOWN_FRAMES;
+        } else if (averageFrameMillis < targetFrameMillis * UPSCALE_THRESHOLD && scale < maxScale) {
+            scale = Math.min(maxScale, scale + STEP);
+            cooldown = COOLDOWN_FRAMES;
+        }
+        return scale;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public double getAverageFrameMillis() {
+        return averageFrameMillis;
+    }
+
+    public double getTargetFrameMillis() {
+        return targetFrameMillis;
+    }
+}
@@ -0,0 +1,22 @@
+package potato;
+
+import java.util.Arrays;
+
+public class ScalarPixelKernels implements PixelKernels {
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void fill(int[] pixels, int from, int to, int color) {
+        Arrays.fill(pixels, from, to, color);
+    }
+
+    @Override
+    public void shade(int[] pixels, int from, int to, ShadeTable table, int level) {
+        for (int i = from; i < to; i++) {
+            pixels[i] = table.shade(pixels[i], level);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package potato;
+
+import java.util.function.DoubleUnaryOperator;
+
+public class ShadeTable {
+    public static final ShadeTable DEFAULT = linear(64, Renderer.MAX_DISTANCE);
+
+    private static final int CHANNEL_SIZE = 256;
+    private static final int LEVEL_SIZE = 3 * CHANNEL_SIZE;
+
+    private final int levels;
+    private final double maxDistance;
+    private final double levelScale;
+    private final int fogColor;
+    private final int[] multipliers;
+    // Per level: 256 red entries, 256 green entries, 256 blue entries, already shifted into place
+    private final int[] table;
+
+    // falloff maps a normalized distance in [0, 1] to a brightness in [0, 1]
+    public ShadeTable(int levels, double maxDistance, DoubleUnaryOperator falloff, int fogColor) {
+        if (levels < 2) {
+            throw new IllegalArgumentException("A shade table needs at least 2 levels");
+        }
+        this.levels = levels;
+        this.maxDistance = maxDistance;
+        this.levelScale = (levels - 1) / maxDistance;
+        this.fogColor = fogColor & 0xFFFFFF;
+        this.multipliers = new int[levels];
+        this.table = new int[levels * LEVEL_SIZE];
+
+        int fogR = fogColor >> 16 & 0xFF;
+        int fogG = fogColor >> 8 & 0xFF;
+        int fogB = fogColor & 0xFF;
+        for (int level = 0; level < levels; level++) {
+            double brightness = falloff.applyAsDouble(level / (double) (levels - 1));
+            int multiplier = (int) Math.round(Math.max(0.0, Math.min(1.0, brightness)) * 256);
+            multipliers[level] = multiplier;
+            int base = level * LEVEL_SIZE;
+            for (int c = 0; c < CHANNEL_SIZE; c++) {
+                table[base + c] = blend(c, fogR, multiplier) << 16;
+                table[base + CHANNEL_SIZE + c] = blend(c, fogG, multiplier) << 8;
+                table[base + 2 * CHANNEL_SIZE + c] = blend(c, fogB, multiplier);
+            }
+        }
+    }
+
+    public static ShadeTable linear(int levels, double maxDistance) {
+        return new ShadeTable(levels, maxDistance, t -> 1.0 - t, 0x000000);
+    }
+
+    // Integer blend so every backend that reproduces this formula gets the same bits
+    static int blend(int channel, int fogChannel, int multiplier) {
+        return (channel * multiplier + fogChannel * (256 - multiplier)) >> 8;
+    }
+
+    public int getLevel(double distance) {
+        int level = (int) (distance * levelScale);
+        if (level < 0) {
+            return 0;
+        }
+        return level < levels ? level : levels - 1;
+    }
+
+    public int shade(int color, int level) {
+        int base = level * LEVEL_SIZE;
+        return table[base + (color >> 16 & 0xFF)]
+                | table[base + CHANNEL_SIZE + (color >> 8 & 0xFF)]
+                | table[base + 2 * CHANNEL_SIZE + (color & 0xFF)];
+    }
+
+    public int getLevelCount() {
+        return levels;
+    }
+
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
+    public int getMultiplier(int level) {
+        return multipliers[level];
+    }
+
+    public int getFogColor() {
+        return fogColor;
+    }
+}
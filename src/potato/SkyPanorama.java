@@ -0,0 +1,65 @@
+package potato;
+
+import java.awt.image.BufferedImage;
+
+public class SkyPanorama {
+    private final int[] source;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private int viewWidth;
+    private int rows;
+    private int panoramaWidth;
+    private int stride;
+    private int[] pixels;
+
+    public SkyPanorama(BufferedImage image) {
+        this.sourceWidth = image.getWidth();
+        this.sourceHeight = image.getHeight();
+        this.source = image.getRGB(0, 0, sourceWidth, sourceHeight, null, 0, sourceWidth);
+    }
+
+    // The panorama spans the full circle at the view's own pixel density, so one view column is one panorama
+    // column. Each row repeats the first viewWidth columns at its end, so any window is a single row copy
+    public void resize(int viewWidth, int rows) {
+        if (pixels != null && viewWidth == this.viewWidth && rows == this.rows) {
+            return;
+        }
+        this.viewWidth = viewWidth;
+        this.rows = rows;
+        this.panoramaWidth = Math.max(1, (int) Math.round(viewWidth * 2 * Math.PI / Renderer.FOV));
+        this.stride = panoramaWidth + viewWidth;
+        this.pixels = new int[stride * Math.max(1, rows)];
+        for (int y = 0; y < rows; y++) {
+            int sourceRow = y * sourceHeight / rows * sourceWidth;
+            for (int x = 0; x < stride; x++) {
+                // Alpha cleared like shaded pixels; the sky is never distance shaded
+                pixels[y * stride + x] = source[sourceRow + (x % panoramaWidth) * sourceWidth / panoramaWidth] & 0xFFFFFF;
+            }
+        }
+    }
+
+    // Panorama column at the left edge of the view for a camera angle
+    public int getStartColumn(double angle) {
+        double turns = (angle - Renderer.HALF_FOV) / (2 * Math.PI);
+        int column = (int) Math.floor((turns - Math.floor(turns)) * panoramaWidth);
+        return Math.min(column, panoramaWidth - 1);
+    }
+
+    public void drawRows(int[] target, int targetWidth, int startColumn) {
+        for (int y = 0; y < rows; y++) {
+            System.arraycopy(pixels, y * stride + startColumn, target, y * targetWidth, viewWidth);
+        }
+    }
+
+    // Rows [from, to) of view column x, written to target[offset + y * step]
+    public void drawColumn(int[] target, int offset, int step, int x, int from, int to, int startColumn) {
+        int src = from * stride + startColumn + x;
+        for (int y = from, dst = offset + from * step; y < to; y++, src += stride, dst += step) {
+            target[dst] = pixels[src];
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
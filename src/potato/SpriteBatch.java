@@ -0,0 +1,60 @@
+package potato;
+
+public class SpriteBatch {
+    private Entry[] entries = new Entry[64];
+    private int count;
+
+    public SpriteBatch() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new Entry();
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    // Entries are recycled between frames; the array only grows when a frame queues more sprites than ever before
+    public Entry add() {
+        if (count == entries.length) {
+            Entry[] grown = new Entry[entries.length * 2];
+            System.arraycopy(entries, 0, grown, 0, entries.length);
+            for (int i = entries.length; i < grown.length; i++) {
+                grown[i] = new Entry();
+            }
+            entries = grown;
+        }
+        return entries[count++];
+    }
+
+    // Farthest first, so nearer sprites are drawn over the ones behind them.
+    // Insertion sort: no allocation, and the order barely changes between frames
+    public void sortBackToFront() {
+        for (int i = 1; i < count; i++) {
+            Entry entry = entries[i];
+            int j = i - 1;
+            while (j >= 0 && entries[j].distance < entry.distance) {
+                entries[j + 1] = entries[j];
+                j--;
+            }
+            entries[j + 1] = entry;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Entry get(int index) {
+        return entries[index];
+    }
+
+    public static class Entry {
+        TextureAtlas atlas;
+        int tileID;
+        int screenX;
+        int screenY;
+        int size;
+        double distance;
+    }
+}
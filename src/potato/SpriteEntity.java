@@ -7,6 +7,8 @@ public class SpriteEntity {
     protected double y;
     protected double angle;
     protected BufferedImage sprite;
+    protected Textures spriteSheet;
+    protected int spriteID;
     protected boolean active;
     protected double speed;
     private double size;
@@ -26,6 +28,12 @@ public class SpriteEntity {
         this.velocityY = 0;
     }
 
+    public SpriteEntity(double x, double y, Textures spriteSheet, int spriteID, double speed) {
+        this(x, y, spriteSheet.getTile(spriteID), speed);
+        this.spriteSheet = spriteSheet;
+        this.spriteID = spriteID;
+    }
+
     public void setVelocity(double vx, double vy)
     {
         this.velocityX = vx;
@@ -43,34 +51,12 @@ public class SpriteEntity {
     public void render(Renderer renderer, Player player) {
         if (!active) return;
 
-        double dx = x - player.getX();
-        double dy = y - player.getY();
-        double distance = Math.sqrt(dx * dx + dy * dy);
-
-        // Don't render if too close or too far
-        if (distance < 0.1 || distance > Renderer.MAX_DISTANCE) return;
-
-        // Calculate the angle between player's view and the entity
-        double entityAngle = Math.atan2(dy, dx) - player.getAngle();
-
-        // Normalize the angle to stay within [-PI, PI]
-        while (entityAngle < -Math.PI) entityAngle += 2 * Math.PI;
-        while (entityAngle > Math.PI) entityAngle -= 2 * Math.PI;
-
-        // Check if the entity is within the player's field of view
-        if (Math.abs(entityAngle) > Renderer.HALF_FOV) return;
-
-        // Calculate the screen position based on the angle
-        int screenX = (int) ((entityAngle / Renderer.HALF_FOV + 1) * renderer.width / 2);
-
-        // Calculate the entity's size based on its distance from the player
-        double projectedSize = (renderer.gameHeight / distance) * size;
-
-        // Adjust vertical position based on distance
-        int screenY = (int) (renderer.gameHeight / 2 * (1 + 1 / distance));
-
-        // Draw the entity
-        renderer.drawSprite(sprite, screenX, screenY, (int) projectedSize, distance, RenderTarget.GAME);
+        // Projection, depth sorting and occlusion are handled by the renderer's sprite pass
+        if (spriteSheet != null) {
+            renderer.queueSprite(spriteSheet.getAtlas(), spriteID, x, y, size, true);
+        } else {
+            renderer.queueSprite(sprite, x, y, size, true);
+        }
     }
 
     public void update() {
@@ -130,6 +116,21 @@ public class SpriteEntity {
 
     public void setSprite(BufferedImage sprite) {
         this.sprite = sprite;
+        this.spriteSheet = null;
+    }
+
+    public void setSprite(Textures spriteSheet, int spriteID) {
+        this.sprite = spriteSheet.getTile(spriteID);
+        this.spriteSheet = spriteSheet;
+        this.spriteID = spriteID;
+    }
+
+    public Textures getSpriteSheet() {
+        return spriteSheet;
+    }
+
+    public int getSpriteID() {
+        return spriteID;
     }
 
     public double getY() {
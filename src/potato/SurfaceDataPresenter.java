@@ -0,0 +1,98 @@
+package potato;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+public class SurfaceDataPresenter implements Presenter {
+    private final Component canvas;
+    private final Class<?> peerClass;
+    private final Method createDataMethod;
+    private final Constructor<?> graphicsConstructor;
+    private final Method invalidateMethod;
+    private final String name;
+    private Object surfaceData;
+    private Graphics2D graphics;
+
+    // Draws straight onto the native window surface (XRender on Linux, GDI on Windows) through
+    // SunGraphics2D. Everything is looked up reflectively, so this simply fails on JDKs that hide it
+    public SurfaceDataPresenter(Component canvas) throws Exception {
+        this.canvas = canvas;
+        String os = System.getProperty("os.name").toLowerCase();
+        String surfaceDataClassName;
+        if (os.contains("windows")) {
+            peerClass = Class.forName("sun.awt.windows.WComponentPeer");
+            surfaceDataClassName = "sun.java2d.windows.GDIWindowSurfaceData";
+            name = "gdi";
+        } else if (os.contains("linux")) {
+            peerClass = Class.forName("sun.awt.X11ComponentPeer");
+            surfaceDataClassName = "sun.java2d.xr.XRSurfaceData";
+            name = "xrender";
+        } else {
+            throw new UnsupportedOperationException("No native surface support for " + os);
+        }
+        Class<?> surfaceDataClass = Class.forName(surfaceDataClassName);
+        Class<?> baseSurfaceDataClass = Class.forName("sun.java2d.SurfaceData");
+        createDataMethod = surfaceDataClass.getMethod("createData", peerClass);
+        invalidateMethod = baseSurfaceDataClass.getMethod("invalidate");
+        graphicsConstructor = Class.forName("sun.java2d.SunGraphics2D")
+                .getConstructor(baseSurfaceDataClass, Color.class, Color.class, Font.class);
+        createGraphics();
+    }
+
+    private void createGraphics() throws Exception {
+        Object peer = getPeer(canvas);
+        if (!peerClass.isInstance(peer)) {
+            throw new UnsupportedOperationException("Unsupported peer type for " + name + " rendering");
+        }
+        surfaceData = createDataMethod.invoke(null, peer);
+        graphics = (Graphics2D) graphicsConstructor.newInstance(surfaceData, Color.BLACK, Color.BLACK, null);
+    }
+
+    // Component.getPeer was removed in Java 9; newer JDKs only expose the peer through AWTAccessor
+    static Object getPeer(Component component) throws Exception {
+        try {
+            return Component.class.getMethod("getPeer").invoke(component);
+        } catch (NoSuchMethodException e) {
+            Object accessor = Class.forName("sun.awt.AWTAccessor").getMethod("getComponentAccessor").invoke(null);
+            return Class.forName("sun.awt.AWTAccessor$ComponentAccessor")
+                    .getMethod("getPeer", Component.class)
+                    .invoke(accessor, component);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void present(BufferedImage frame) {
+        graphics.drawImage(frame, 0, 0, null);
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        try {
+            invalidate();
+            createGraphics();
+        } catch (Exception e) {
+            System.err.println("Failed to update " + name + " surface: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        graphics.dispose();
+        invalidate();
+    }
+
+    private void invalidate() {
+        try {
+            invalidateMethod.invoke(surfaceData);
+        } catch (Exception e) {
+            System.err.println("Failed to invalidate " + name + " surface: " + e.getMessage());
+        }
+    }
+}
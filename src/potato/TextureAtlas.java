@@ -0,0 +1,261 @@
+package potato;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+public class TextureAtlas {
+    private static final int PLACEHOLDER_A = 0xFFFF00FF;
+    private static final int PLACEHOLDER_B = 0xFF000000;
+    // At most this many reduced levels below the full-size tiles, so the chain costs under a third extra memory
+    public static final int MAX_MIP_LEVELS = 3;
+
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int tileCount;
+    private final int strideShift;
+    private final int tileShift;
+    private final int[][] levels;
+    private byte[][] indexLevels;
+    // Opaque runs of every tile column per level: the runs of column c are
+    // runs[runStarts[c]] .. runs[runStarts[c + 1] - 1], each packed as firstRow << 16 | endRow
+    private final int[][] runLevels;
+    private final int[][] runStartLevels;
+
+    // Tiles are numbered from 1 like Textures.getTile; slot 0 holds the placeholder for unknown IDs
+    public TextureAtlas(BufferedImage source, int tileWidth, int tileHeight) {
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.strideShift = log2(nextPowerOfTwo(tileWidth));
+        int rowShift = log2(nextPowerOfTwo(tileHeight));
+        this.tileShift = strideShift + rowShift;
+
+        int cols = source == null ? 0 : source.getWidth() / tileWidth;
+        int rows = source == null ? 0 : source.getHeight() / tileHeight;
+        this.tileCount = cols * rows;
+        int[] pixels = new int[(tileCount + 1) << tileShift];
+        this.levels = new int[1 + mipLevelCount(tileWidth, tileHeight)][];
+        this.runLevels = new int[levels.length][];
+        this.runStartLevels = new int[levels.length][];
+        levels[0] = pixels;
+
+        for (int y = 0; y < tileHeight; y++) {
+            for (int x = 0; x < tileWidth; x++) {
+                pixels[(y << strideShift) + x] = ((x + y) % 2 == 0) ? PLACEHOLDER_A : PLACEHOLDER_B;
+            }
+        }
+        if (tileCount == 0) {
+            buildMipLevels();
+            buildRuns();
+            return;
+        }
+
+        int sourceWidth = source.getWidth();
+        int[] argb = source.getRGB(0, 0, sourceWidth, rows * tileHeight, null, 0, sourceWidth);
+        for (int id = 1; id <= tileCount; id++) {
+            int srcX = ((id - 1) % cols) * tileWidth;
+            int srcY = ((id - 1) / cols) * tileHeight;
+            int dst = id << tileShift;
+            for (int y = 0; y < tileHeight; y++) {
+                System.arraycopy(argb, (srcY + y) * sourceWidth + srcX, pixels, dst + (y << strideShift), tileWidth);
+            }
+        }
+        buildMipLevels();
+        buildRuns();
+    }
+
+    // Levels halve the tiles until they would drop below 2 pixels or stop dividing evenly
+    private static int mipLevelCount(int tileWidth, int tileHeight) {
+        int count = 0;
+        while (count < MAX_MIP_LEVELS
+                && tileWidth % (2 << count) == 0 && tileHeight % (2 << count) == 0
+                && (tileWidth >> (count + 1)) >= 2 && (tileHeight >> (count + 1)) >= 2) {
+            count++;
+        }
+        return count;
+    }
+
+    // Each level keeps the same tile slots with half the stride and rows of the one above, so
+    // a texel (x, y) of level 0 is at (x >> level, y >> level) in any level
+    private void buildMipLevels() {
+        for (int level = 1; level < levels.length; level++) {
+            int[] source = levels[level - 1];
+            int sourceStrideShift = strideShift - level + 1;
+            int levelStrideShift = strideShift - level;
+            int levelWidth = tileWidth >> level;
+            int levelHeight = tileHeight >> level;
+            int[] target = new int[(tileCount + 1) << (tileShift - 2 * level)];
+            for (int id = 0; id <= tileCount; id++) {
+                int sourceTile = id << (tileShift - 2 * (level - 1));
+                int targetTile = id << (tileShift - 2 * level);
+                for (int y = 0; y < levelHeight; y++) {
+                    int row0 = sourceTile + ((2 * y) << sourceStrideShift);
+                    int row1 = row0 + (1 << sourceStrideShift);
+                    for (int x = 0; x < levelWidth; x++) {
+                        target[targetTile + (y << levelStrideShift) + x] = boxFilter(
+                                source[row0 + 2 * x], source[row0 + 2 * x + 1],
+                                source[row1 + 2 * x], source[row1 + 2 * x + 1]);
+                    }
+                }
+            }
+            levels[level] = target;
+        }
+    }
+
+    // Scans every column of every tile top to bottom and records its opaque spans, so sprite blitting can
+    // jump over the transparent texels instead of testing each one
+    private void buildRuns() {
+        for (int level = 0; level < levels.length; level++) {
+            int[] texels = levels[level];
+            int levelStrideShift = strideShift - level;
+            int levelWidth = tileWidth >> level;
+            int levelHeight = tileHeight >> level;
+            int columns = (tileCount + 1) * levelWidth;
+            int[] runStarts = new int[columns + 1];
+            int[] runs = new int[columns];
+            int runCount = 0;
+            for (int column = 0; column < columns; column++) {
+                runStarts[column] = runCount;
+                int base = ((column / levelWidth) << (tileShift - 2 * level)) + column % levelWidth;
+                int y = 0;
+                while (y < levelHeight) {
+                    while (y < levelHeight && (texels[base + (y << levelStrideShift)] >>> 24) == 0) {
+                        y++;
+                    }
+                    int first = y;
+                    while (y < levelHeight && (texels[base + (y << levelStrideShift)] >>> 24) != 0) {
+                        y++;
+                    }
+                    if (first < y) {
+                        if (runCount == runs.length) {
+                            runs = Arrays.copyOf(runs, runs.length * 2);
+                        }
+                        runs[runCount++] = first << 16 | y;
+                    }
+                }
+            }
+            runStarts[columns] = runCount;
+            runLevels[level] = Arrays.copyOf(runs, runCount);
+            runStartLevels[level] = runStarts;
+        }
+    }
+
+    // Averages the opaque texels of a 2x2 block. Sprites only use alpha as a mask, so the result is
+    // opaque when at least half of the block is, and fully transparent otherwise
+    private static int boxFilter(int c0, int c1, int c2, int c3) {
+        int o0 = (c0 >>> 24) != 0 ? 1 : 0;
+        int o1 = (c1 >>> 24) != 0 ? 1 : 0;
+        int o2 = (c2 >>> 24) != 0 ? 1 : 0;
+        int o3 = (c3 >>> 24) != 0 ? 1 : 0;
+        int count = o0 + o1 + o2 + o3;
+        if (count < 2) {
+            return 0;
+        }
+        int r = (o0 * ((c0 >> 16) & 0xFF) + o1 * ((c1 >> 16) & 0xFF) + o2 * ((c2 >> 16) & 0xFF) + o3 * ((c3 >> 16) & 0xFF)) / count;
+        int g = (o0 * ((c0 >> 8) & 0xFF) + o1 * ((c1 >> 8) & 0xFF) + o2 * ((c2 >> 8) & 0xFF) + o3 * ((c3 >> 8) & 0xFF)) / count;
+        int b = (o0 * (c0 & 0xFF) + o1 * (c1 & 0xFF) + o2 * (c2 & 0xFF) + o3 * (c3 & 0xFF)) / count;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    public static TextureAtlas fromImage(BufferedImage image) {
+        return new TextureAtlas(image, image.getWidth(), image.getHeight());
+    }
+
+    // Null once quantize has dropped the ARGB texels
+    public int[] getPixels() {
+        return levels[0];
+    }
+
+    public int getTileOffset(int id) {
+        if (id < 1 || id > tileCount) {
+            return 0;
+        }
+        return id << tileShift;
+    }
+
+    public int getStrideShift() {
+        return strideShift;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public int[] getPixels(int level) {
+        return levels[level];
+    }
+
+    // Replaces the ARGB texels with 8-bit palette indices for the palettized renderer, a quarter of the memory.
+    // Index 0 marks transparent texels. keepPixels keeps the full-size ARGB level for drawing outside the
+    // 3D view, where texels aren't shaded and shouldn't lose colors to the palette
+    public TextureAtlas quantize(Palette palette, boolean keepPixels) {
+        byte[][] indices = new byte[levels.length][];
+        for (int level = 0; level < levels.length; level++) {
+            indices[level] = palette.quantize(levels[level]);
+            if (level > 0 || !keepPixels) {
+                levels[level] = null;
+            }
+        }
+        indexLevels = indices;
+        return this;
+    }
+
+    // Null unless the atlas was quantized
+    public byte[] getIndices(int level) {
+        return indexLevels == null ? null : indexLevels[level];
+    }
+
+    public int[] getRuns(int level) {
+        return runLevels[level];
+    }
+
+    public int[] getRunStarts(int level) {
+        return runStartLevels[level];
+    }
+
+    // Index of the first column of a tile in getRunStarts(level)
+    public int getRunColumn(int id, int level) {
+        return (getTileOffset(id) >> tileShift) * (tileWidth >> level);
+    }
+
+    public int getTileOffset(int id, int level) {
+        return getTileOffset(id) >> (2 * level);
+    }
+
+    public int getStrideShift(int level) {
+        return strideShift - level;
+    }
+
+    // The smallest level whose texels still cover no more than one screen pixel, given how many
+    // level 0 texels one screen pixel steps over
+    public int levelFor(double texelStep) {
+        int level = 0;
+        while (level + 1 < levels.length && texelStep >= (2 << level)) {
+            level++;
+        }
+        return level;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    static int nextPowerOfTwo(int value) {
+        int result = 1;
+        while (result < value) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    static int log2(int powerOfTwo) {
+        return Integer.numberOfTrailingZeros(powerOfTwo);
+    }
+}
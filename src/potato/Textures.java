@@ -3,8 +3,8 @@ package potato;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Textures {
     private final Map<Integer, BufferedImage> tiles;
@@ -13,23 +13,28 @@ public class Textures {
     private final Logger logger;
     private final String tilesetPath;
     private BufferedImage tilesetImage;
+    private TextureAtlas atlas;
 
     public Textures(String tilesetPath, int tileWidth, int tileHeight) {
         this.tileWidth = tileWidth;
         this.tileHeight = tileHeight;
-        this.tiles = new HashMap<>();
+        this.tiles = new ConcurrentHashMap<>();
         this.logger = new Logger(this.getClass().getName());
         this.logger.addPrefix(tilesetPath);
         this.tilesetPath = tilesetPath;
     }
 
-    private void loadTilesetImage() {
+    private synchronized void loadTilesetImage() {
         if (tilesetImage == null) {
             try {
                 tilesetImage = ImageIO.read(getClass().getResourceAsStream(tilesetPath));
                 if (tilesetImage == null) {
                     throw new IOException("Failed to load tileset image");
                 }
+                atlas = new TextureAtlas(tilesetImage, tileWidth, tileHeight);
+                if (Game.PALETTIZED) {
+                    atlas.quantize(Palette.getShared(), false);
+                }
                 logger.log("Loaded tileset image");
             } catch (IOException e) {
                 logger.log("Error loading tileset: " + e.getMessage());
@@ -64,6 +69,18 @@ public class Textures {
         return tile;
     }
 
+    public synchronized TextureAtlas getAtlas() {
+        if (atlas == null) {
+            try {
+                loadTilesetImage();
+            } catch (Exception e) {
+                logger.log("Warning: Using placeholder atlas: " + e.getMessage());
+                atlas = new TextureAtlas(null, tileWidth, tileHeight);
+            }
+        }
+        return atlas;
+    }
+
     private BufferedImage createPlaceholderTile() {
         BufferedImage placeholder = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_ARGB);
         // Fill with a noticeable color or pattern
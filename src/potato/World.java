@@ -0,0 +1,66 @@
+package potato;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class World {
+    private final Map map;
+    private final MiniMapRenderer miniMapRenderer;
+    private final TextureAtlas floorTexture;
+    private final TextureAtlas ceilingTexture;
+    private final SkyPanorama sky;
+
+    // Everything derived from the map is built here once, when the level is loaded
+    public World(Map map, Textures textures) {
+        this.map = map;
+        this.miniMapRenderer = new MiniMapRenderer(map, textures);
+        this.floorTexture = decode(map.getFloorImage());
+        boolean skyMode = map.getCeilingMode() == CeilingMode.SKY && map.getCeilingImage() != null;
+        this.ceilingTexture = skyMode ? null : decode(map.getCeilingImage());
+        this.sky = skyMode ? new SkyPanorama(map.getCeilingImage()) : null;
+    }
+
+    // The plane casters wrap texel coordinates with a mask, so floor and ceiling images are resampled to
+    // power-of-two sizes first
+    private static TextureAtlas decode(BufferedImage image) {
+        if (image == null) {
+            return null;
+        }
+        int width = TextureAtlas.nextPowerOfTwo(image.getWidth());
+        int height = TextureAtlas.nextPowerOfTwo(image.getHeight());
+        if (width != image.getWidth() || height != image.getHeight()) {
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled.createGraphics();
+            g.drawImage(image, 0, 0, width, height, null);
+            g.dispose();
+            image = scaled;
+        }
+        TextureAtlas atlas = TextureAtlas.fromImage(image);
+        return Game.PALETTIZED ? atlas.quantize(Palette.getShared(), false) : atlas;
+    }
+
+    public Map getMap() {
+        return map;
+    }
+
+    public MiniMapRenderer getMiniMapRenderer() {
+        return miniMapRenderer;
+    }
+
+    public TextureAtlas getFloorTexture() {
+        return floorTexture;
+    }
+
+    public TextureAtlas getCeilingTexture() {
+        return ceilingTexture;
+    }
+
+    // Null unless the map draws its ceiling as a sky
+    public SkyPanorama getSky() {
+        return sky;
+    }
+
+    public ShadeTable getShadeTable() {
+        return map.getShadeTable();
+    }
+}
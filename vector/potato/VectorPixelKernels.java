@@ -0,0 +1,63 @@
+package potato;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API versions of the scalar kernels. Shading evaluates ShadeTable.blend per channel instead of
+// reading the table, which gives the same bits; tails fall back to the scalar code
+public class VectorPixelKernels implements PixelKernels {
+    // Capped at 256 bits: JDK 17 reports 512-bit species on AVX-512 machines where C2 only intrinsifies 256-bit
+    // vectors, and the non-intrinsified fallback is dramatically slower than scalar code
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED.vectorBitSize() > 256
+            ? IntVector.SPECIES_256 : IntVector.SPECIES_PREFERRED;
+
+    public VectorPixelKernels() {
+        if (SPECIES.length() < 4) {
+            throw new UnsupportedOperationException("No useful vector width (" + SPECIES.length() + " lanes)");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector " + SPECIES.vectorBitSize() + "-bit";
+    }
+
+    @Override
+    public void fill(int[] pixels, int from, int to, int color) {
+        IntVector value = IntVector.broadcast(SPECIES, color);
+        int i = from;
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            value.intoArray(pixels, i);
+        }
+        for (; i < to; i++) {
+            pixels[i] = color;
+        }
+    }
+
+    @Override
+    public void shade(int[] pixels, int from, int to, ShadeTable table, int level) {
+        int multiplier = table.getMultiplier(level);
+        int fog = table.getFogColor();
+        int i = from;
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            shade(IntVector.fromArray(SPECIES, pixels, i), multiplier, fog).intoArray(pixels, i);
+        }
+        for (; i < to; i++) {
+            pixels[i] = table.shade(pixels[i], level);
+        }
+    }
+
+    private static IntVector shade(IntVector color, int multiplier, int fog) {
+        int inverse = 256 - multiplier;
+        IntVector r = blend(color.lanewise(VectorOperators.LSHR, 16).and(0xFF), multiplier, (fog >> 16 & 0xFF) * inverse);
+        IntVector g = blend(color.lanewise(VectorOperators.LSHR, 8).and(0xFF), multiplier, (fog >> 8 & 0xFF) * inverse);
+        IntVector b = blend(color.and(0xFF), multiplier, (fog & 0xFF) * inverse);
+        return r.lanewise(VectorOperators.LSHL, 16).or(g.lanewise(VectorOperators.LSHL, 8)).or(b);
+    }
+
+    // ShadeTable.blend for a whole vector of channels
+    private static IntVector blend(IntVector channel, int multiplier, int fogTerm) {
+        return channel.mul(multiplier).add(fogTerm).lanewise(VectorOperators.LSHR, 8);
+    }
+}